@@ -1,8 +1,102 @@
-import java.util.LinkedList;
-import java.util.Queue;
+import java.io.IOException;
+import java.util.Arrays;
 
 public class BFSAlgorithm {
 
+    /**
+     * The ways a slide can be followed to the cell where it stops.
+     */
+    public enum SlideMode {
+        // Walk every slide one cell at a time
+        SCAN,
+        // Look every slide up in a precomputed SlideTable
+        TABLE,
+        // Find the next wall 64 cells at a time with a SlideScanner, scanning small mazes one cell at a time
+        WORD
+    }
+
+    /**
+     * The ways a search can end.
+     */
+    public enum Outcome {
+        // A path to the ending position was found
+        FOUND,
+        // Every reachable cell was expanded without reaching the ending position
+        NO_PATH,
+        // The deadline of the search limits passed before the search finished
+        TIMED_OUT,
+        // The search limits were cancelled before the search finished
+        CANCELLED,
+        // The buffers and slide tables of the search need more memory than the budget allows
+        OVER_BUDGET
+    }
+
+    // Directions in which movement is allowed
+    static final String[] movableDirections = {"Move up to", "Move down to", "Move left to", "Move right to"};
+
+    // Coordinates for movement in each direction
+    static final int[][] movableCoordinates = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+    private final SlideMode slideMode;
+    private long buildTimeNanos;
+    private long searchTimeNanos;
+    private long nodesExpanded;
+    private long nodesEnqueued;
+    // Counters only kept while the search is instrumented
+    private long peakFrontier;
+    private long cellsScanned;
+    private SolveStats stats;
+    private SolveLimits limits;
+
+    // Scratch buffers indexed by row * columns + column, kept between searches so repeated solves do not allocate
+    private int[] queue = new int[0];
+    private int[] parent = new int[0];
+    private byte[] dirTo = new byte[0];
+    private long[] visited = new long[0];
+
+    // Outcome of the last search, the end cell is -1 when no path was found
+    private Outcome outcome = Outcome.NO_PATH;
+    // Memory the last search needed and the budget it was given, for the message when it did not fit
+    private long requiredBytes;
+    private long budgetBytes;
+    private int lastStartCell = -1;
+    private int lastEndCell = -1;
+    private int lastColumns;
+    // The ending positions of the last search when it had a target set, otherwise null
+    private TargetSet lastTargets;
+
+    /**
+     * Create a BFSAlgorithm that walks every slide one cell at a time.
+     */
+    public BFSAlgorithm() {
+        this(SlideMode.SCAN);
+    }
+
+    /**
+     * Create a BFSAlgorithm with the given slide mode.
+     * @param slideMode The way slides are followed during the search
+     */
+    public BFSAlgorithm(SlideMode slideMode) {
+        this.slideMode = slideMode;
+    }
+
+    /**
+     * Attach statistics that every following search fills in, which also turns on the counters that cost time to keep.
+     * @param stats The statistics to fill in, or null to stop recording them
+     */
+    public void setStats(SolveStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Attach limits that every following search is stopped by. A search that hits them ends with the outcome
+     * TIMED_OUT, CANCELLED or OVER_BUDGET and keeps the statistics it had gathered so far.
+     * @param limits The limits, or null to let searches run to completion
+     */
+    public void setLimits(SolveLimits limits) {
+        this.limits = limits;
+    }
+
     /**
      * Finds the shortest path from start position to end position in a maze using BFS algorithm.
      *
@@ -12,102 +106,585 @@ public class BFSAlgorithm {
      * @return              The shortest path from start to end position in the maze.
      */
     public String shortestDistance(int[][] loadedMaze, int[] mazeStartPos, int[] mazeEndPos) {
-        int rows = loadedMaze.length;
-        int columns = loadedMaze[0].length;
-        boolean[][] visited = new boolean[rows][columns];
+        return shortestDistance(MazeGrid.fromArray(loadedMaze), mazeStartPos, mazeEndPos);
+    }
 
-        // Queue to store the coordinates to be visited
-        Queue<Coordinate> queueList = new LinkedList<>();
-        queueList.offer(new Coordinate(mazeStartPos[0], mazeStartPos[1], 0, "", new int[]{}, 1));
+    /**
+     * Finds the shortest path from start position to end position in a bit-packed maze using BFS algorithm.
+     *
+     * @param grid          The bit-packed maze.
+     * @param mazeStartPos  The starting position in the maze. mazeStartPos[0] represents the row and mazeStartPos[1] represents the column.
+     * @param mazeEndPos    The ending position in the maze. mazeEndPos[0] represents the row and mazeEndPos[1] represents the column.
+     * @return              The shortest path from start to end position in the maze.
+     */
+    public String shortestDistance(MazeGrid grid, int[] mazeStartPos, int[] mazeEndPos) {
+        solve(grid, mazeStartPos, mazeEndPos);
+        return getPath();
+    }
 
-        // Directions in which movement is allowed
-        String[] movableDirections = {"Move up to", "Move down to", "Move left to", "Move right to"};
+    /**
+     * Run the search without building the path text, which can then be read with getPath(), getSteps() and getCellsTravelled().
+     * @param grid          The bit-packed maze
+     * @param mazeStartPos  The starting position in the maze
+     * @param mazeEndPos    The ending position in the maze
+     * @return true if a path was found, otherwise false, in which case getOutcome() tells why
+     */
+    public boolean solve(MazeGrid grid, int[] mazeStartPos, int[] mazeEndPos) {
+        return run(grid, mazeStartPos, mazeEndPos, null, false);
+    }
 
-        // Coordinates for movement in each direction
-        int[][] movableCoordinates = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    /**
+     * Run the search for the nearest of several ending positions. A slide passing through any of them stops on it,
+     * and the path found is to the first one reached, which can be read with getReachedTarget().
+     * @param grid         The bit-packed maze
+     * @param mazeStartPos The starting position in the maze
+     * @param targets      The ending positions
+     * @return true if a path was found, otherwise false, in which case getOutcome() tells why
+     */
+    public boolean solve(MazeGrid grid, int[] mazeStartPos, TargetSet targets) {
+        return run(grid, mazeStartPos, null, targets, false);
+    }
 
-        // BFS algorithm
-        while (!queueList.isEmpty()) {
-            Coordinate position = queueList.poll();
-            if (position.row == mazeEndPos[0] && position.column == mazeEndPos[1]) {
-                // If the end position is reached, return the path
-                return position.toString();
+    /**
+     * Run the search for a loaded puzzle, looking for the nearest ending position when it has more than one.
+     * @param puzzle The loaded puzzle
+     * @return true if a path was found, otherwise false, in which case getOutcome() tells why
+     */
+    public boolean solve(Puzzle puzzle) {
+        if (puzzle.getTargetCount() > 1) {
+            return solve(puzzle.getGrid(), puzzle.getStartingPos(), puzzle.getTargets());
+        }
+        return solve(puzzle.getGrid(), puzzle.getStartingPos(), puzzle.getEndingPos());
+    }
+
+    /**
+     * Run one search for the paths to all of several ending positions, which can then be read with getTargetSteps()
+     * and getPathTo(). The ball stops for good on an ending position, so a path never runs through another one.
+     * getPath() and getSteps() give the path to the nearest one.
+     * @param grid         The bit-packed maze
+     * @param mazeStartPos The starting position in the maze
+     * @param targets      The ending positions
+     * @return The number of ending positions reached
+     */
+    public int solveAll(MazeGrid grid, int[] mazeStartPos, TargetSet targets) {
+        run(grid, mazeStartPos, null, targets, true);
+        int reached = 0;
+        for (int i = 0; i < targets.size(); i++) {
+            if (getTargetSteps(i) >= 0) {
+                reached++;
             }
+        }
+        return reached;
+    }
 
-            // Explore all possible movements from the current position
-            for (int i = 0; i < movableCoordinates.length; i++) {
-                // Initialize variables with current position and path information
-                int row = position.row;
-                int column = position.column;
-                int movements = position.movements;
-                String path = position.path;
-                int step = position.step;
-
-                // Move in the current direction until an obstacle is encountered or the end position is reached
-                while (row >= 0 && row < rows
-                        && column >= 0 && column < columns
-                        && loadedMaze[row][column] == 0
-                        && (row != mazeEndPos[0] || column != mazeEndPos[1])) {
-                    // Update the current position
-                    row += movableCoordinates[i][0];
-                    column += movableCoordinates[i][1];
-                    // Increment the movement count
-                    movements += 1;
-                }
+    /**
+     * Run a search for one ending position or a set of them, timing it and recording its statistics.
+     * @param grid         The bit-packed maze
+     * @param mazeStartPos The starting position in the maze
+     * @param mazeEndPos   The ending position, or null when targets is given
+     * @param targets      The ending positions, or null when mazeEndPos is given
+     * @param all          true to go on until every target is reached, false to stop at the first one
+     * @return true if a path was found, otherwise false
+     */
+    private boolean run(MazeGrid grid, int[] mazeStartPos, int[] mazeEndPos, TargetSet targets, boolean all) {
+        SolveEvent event = SolveStats.isFlightRecorderRunning() ? new SolveEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        boolean instrument = stats != null || (event != null && event.isEnabled());
+        long bytesBefore = instrument ? SolveStats.currentThreadAllocatedBytes() : -1;
+
+        lastColumns = grid.getColumns();
+        lastStartCell = mazeStartPos[0] * lastColumns + mazeStartPos[1];
+        lastEndCell = -1;
+        lastTargets = targets;
+        buildTimeNanos = 0;
+        searchTimeNanos = 0;
+        nodesExpanded = 0;
+        nodesEnqueued = 0;
+        peakFrontier = 0;
+        cellsScanned = 0;
+
+        // Refuse a maze that does not fit the budget or limits that are already used up before allocating anything
+        SolveLimits limits = this.limits;
+        requiredBytes = requiredBytes(grid, slideMode);
+        outcome = limits == null ? null : limits.check();
+        budgetBytes = limits == null ? Long.MAX_VALUE : limits.getMaxBytes();
+        if (outcome == null && requiredBytes > budgetBytes) {
+            outcome = Outcome.OVER_BUDGET;
+        }
+        if (outcome == null) {
+            // Build the jump table up front when it is selected, timing it apart from the search
+            long buildStart = System.nanoTime();
+            SlideTable slideTable = slideMode == SlideMode.TABLE ? new SlideTable(grid) : null;
+            SlideScanner slideScanner = slideMode == SlideMode.WORD && SlideScanner.isWorthwhile(grid) ? new SlideScanner(grid) : null;
+            long searchStart = System.nanoTime();
+            buildTimeNanos = searchStart - buildStart;
 
+            // A single ending position is searched for as a set of one
+            TargetSet searchTargets = targets != null ? targets
+                    : TargetSet.single(grid.getRows(), lastColumns, mazeEndPos[0], mazeEndPos[1]);
+            lastEndCell = search(grid, slideTable, slideScanner, mazeStartPos, searchTargets, all, instrument, limits);
+            searchTimeNanos = System.nanoTime() - searchStart;
+        }
 
+        if (instrument) {
+            long bytesAfter = SolveStats.currentThreadAllocatedBytes();
+            long bytesAllocated = bytesBefore < 0 || bytesAfter < 0 ? -1 : bytesAfter - bytesBefore;
+            int steps = getSteps();
+            if (stats != null) {
+                stats.recordSearch(slideMode.name(), buildTimeNanos, searchTimeNanos, nodesEnqueued, nodesExpanded,
+                        peakFrontier, cellsScanned, steps, getCellsTravelled(), bytesAllocated, outcome.name());
+            }
+            if (event != null && event.shouldCommit()) {
+                event.rows = grid.getRows();
+                event.columns = grid.getColumns();
+                event.slideMode = slideMode.name();
+                event.buildTime = buildTimeNanos;
+                event.searchTime = searchTimeNanos;
+                event.nodesEnqueued = nodesEnqueued;
+                event.nodesExpanded = nodesExpanded;
+                event.peakFrontier = peakFrontier;
+                event.cellsScanned = cellsScanned;
+                event.pathLength = steps;
+                event.bytesAllocated = bytesAllocated;
+                event.outcome = outcome.name();
+                event.commit();
+            }
+        }
+        return lastEndCell >= 0;
+    }
+
+    /**
+     * Get the path found by the last search.
+     * @return The path in the format "Start at: (x, y)" followed by one numbered move per line,
+     *         or a message if no path was found or the search was stopped by its limits
+     */
+    public String getPath() {
+        return switch (outcome) {
+            case FOUND -> buildPath(lastEndCell, lastStartCell, lastColumns);
+            // If no path is found, return appropriate message
+            case NO_PATH -> "No path was found!";
+            case TIMED_OUT -> "The search timed out after expanding " + nodesExpanded + " cells!";
+            case CANCELLED -> "The search was cancelled after expanding " + nodesExpanded + " cells!";
+            case OVER_BUDGET -> "The search needs " + requiredBytes + " bytes, more than its budget of "
+                    + budgetBytes + " bytes!";
+        };
+    }
+
+    /**
+     * Get the ending position the path found by the last search leads to.
+     * @return The ending position as {row, column}, or null if no path was found
+     */
+    public int[] getReachedTarget() {
+        if (lastEndCell < 0) {
+            return null;
+        }
+        return new int[]{lastEndCell / lastColumns, lastEndCell % lastColumns};
+    }
+
+    /**
+     * Get the number of moves to one of the ending positions of the last search with a target set.
+     * After solveAll() every reachable target has its distance; after a search for the nearest target,
+     * only the targets reached before the search stopped have one.
+     * @param index The index of the target in the target set
+     * @return The number of moves, or -1 if the target was not reached
+     * @throws IllegalStateException If the last search did not have a target set
+     */
+    public int getTargetSteps(int index) {
+        if (lastTargets == null) {
+            throw new IllegalStateException("The last search had a single ending position");
+        }
+        int cell = lastTargets.getCell(index);
+        if ((outcome != Outcome.FOUND && outcome != Outcome.NO_PATH) || !isVisited(cell)) {
+            return -1;
+        }
+        return stepsTo(cell);
+    }
+
+    /**
+     * Get the path to one of the ending positions of the last search with a target set.
+     * @param index The index of the target in the target set
+     * @return The path in the format of getPath(), or "No path was found!" if the target was not reached
+     */
+    public String getPathTo(int index) {
+        if (getTargetSteps(index) < 0) {
+            return "No path was found!";
+        }
+        return buildPath(lastTargets.getCell(index), lastStartCell, lastColumns);
+    }
+
+    /**
+     * Get the way the last search ended.
+     * @return FOUND or NO_PATH if the search finished, otherwise the limit that stopped it
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
 
-                // If the end position is not reached and the current position is not the end position
-                if (row != mazeEndPos[0] || column != mazeEndPos[1]) {
-                    // Backtrack to the previous valid position
-                    row -= movableCoordinates[i][0];
-                    column -= movableCoordinates[i][1];
-                    // Decrement the movement count as we are undoing the last movement
-                    movements -= 1;
+    /**
+     * Estimate the memory a search of a maze needs for its scratch buffers and slide tables.
+     * @param grid      The bit-packed maze
+     * @param slideMode The way slides are followed during the search
+     * @return The number of bytes
+     */
+    static long requiredBytes(MazeGrid grid, SlideMode slideMode) {
+        long cells = (long) grid.getRows() * grid.getColumns();
+        // The queue and parent ints, the direction bytes and the visited bits
+        long bytes = cells * 9 + ((cells + 63) >>> 6) * 8;
+        if (slideMode == SlideMode.TABLE) {
+            // One stop cell per direction
+            bytes += cells * 16;
+        } else if (slideMode == SlideMode.WORD && SlideScanner.isWorthwhile(grid)) {
+            // The transposed copy of the grid
+            bytes += (grid.getColumns() + 2L) * ((grid.getRows() + 2 + 63) >>> 6) * 8;
+        }
+        return bytes;
+    }
+
+    /**
+     * Walk the moves of the path found by the last search from start to end without building the path text.
+     * The parent links along the path are reversed for the walk and restored afterwards,
+     * so the walk needs no memory that grows with the length of the path.
+     * @param visitor Called once per move, in order
+     * @throws IOException If the visitor fails to write a move
+     */
+    void walkPath(MoveVisitor visitor) throws IOException {
+        if (lastEndCell < 0) {
+            return;
+        }
+        // Point every cell on the path at the cell after it instead of the cell before it
+        int following = -1;
+        int cell = lastEndCell;
+        while (cell != lastStartCell) {
+            int previous = parent[cell];
+            parent[cell] = following;
+            following = cell;
+            cell = previous;
+        }
+        int first = following;
+        try {
+            int step = 0;
+            for (cell = first; cell != -1; cell = parent[cell]) {
+                visitor.move(++step, dirTo[cell], cell);
+            }
+        } finally {
+            // Turn the links back around
+            int previous = lastStartCell;
+            cell = first;
+            while (cell != -1) {
+                int next = parent[cell];
+                parent[cell] = previous;
+                previous = cell;
+                cell = next;
+            }
+        }
+    }
+
+    /**
+     * Get the start cell of the last search.
+     * @return The index of the start cell, or -1 before the first search
+     */
+    int getStartCell() {
+        return lastStartCell;
+    }
+
+    /**
+     * Get the number of columns of the maze of the last search.
+     * @return The number of columns
+     */
+    int getColumns() {
+        return lastColumns;
+    }
+
+    /**
+     * Get the number of moves on the path found by the last search.
+     * @return The number of moves, or -1 if no path was found
+     */
+    public int getSteps() {
+        if (lastEndCell < 0) {
+            return -1;
+        }
+        return stepsTo(lastEndCell);
+    }
+
+    /**
+     * Count the moves to a cell reached by the last search by walking its parent links back to the start.
+     * @param endCell The index of the reached cell
+     * @return The number of moves
+     */
+    private int stepsTo(int endCell) {
+        int steps = 0;
+        for (int cell = endCell; cell != lastStartCell; cell = parent[cell]) {
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * Get the number of cells travelled along the path found by the last search.
+     * @return The number of cells travelled, or -1 if no path was found
+     */
+    public long getCellsTravelled() {
+        if (lastEndCell < 0) {
+            return -1;
+        }
+        long movements = 0;
+        for (int cell = lastEndCell; cell != lastStartCell; cell = parent[cell]) {
+            int from = parent[cell];
+            movements += Math.abs(cell / lastColumns - from / lastColumns) + Math.abs(cell % lastColumns - from % lastColumns);
+        }
+        return movements;
+    }
+
+    /**
+     * Run the BFS, recording for every reached cell the cell it was reached from and the direction of that move.
+     * A slide stops on the first ending position it passes through and a reached ending position is never expanded,
+     * since the ball stops there for good.
+     * @param grid         The bit-packed maze
+     * @param slideTable   The precomputed slide table, or null
+     * @param slideScanner The word-level slide scanner, or null
+     * @param mazeStartPos The starting position in the maze
+     * @param targets      The ending positions
+     * @param all          true to go on until every target is reached, false to stop at the first one
+     * @param instrument   true to keep the peak frontier and the cells crossed by slides
+     * @param limits       The limits to stop at, or null to run to completion
+     * @return The index of the first target reached, otherwise -1, with the outcome set either way
+     */
+    private int search(MazeGrid grid, SlideTable slideTable, SlideScanner slideScanner, int[] mazeStartPos,
+                       TargetSet targets, boolean all, boolean instrument, SolveLimits limits) {
+        int columns = grid.getColumns();
+        prepare(grid.getRows() * columns);
+        // The queue holds the start cell alone before the first expansion
+        peakFrontier = 1;
+
+        // Each cell is enqueued at most once, so a queue the size of the maze never overflows
+        int head = 0;
+        int tail = 0;
+        int startCell = mazeStartPos[0] * columns + mazeStartPos[1];
+        markVisited(startCell);
+        parent[startCell] = -1;
+        queue[tail++] = startCell;
+        int nearest = -1;
+        int remaining = targets.size();
+        // A single target is compared as a position, and the slide table and scanner stop on it themselves
+        boolean single = targets.size() == 1;
+        int endRow = single ? targets.getCell(0) / columns : -1;
+        int endColumn = single ? targets.getCell(0) % columns : -1;
+        int endCell = single ? targets.getCell(0) : -1;
+
+        // BFS algorithm
+        while (head < tail) {
+            // Stop between expansions once in a while if the limits say so
+            if (limits != null && (nodesExpanded & (SolveLimits.checkInterval - 1)) == 0) {
+                Outcome stop = limits.check();
+                if (stop != null) {
+                    outcome = stop;
+                    nodesEnqueued = tail;
+                    return -1;
+                }
+            }
+            int cell = queue[head++];
+            nodesExpanded++;
+            int fromRow = cell / columns;
+            int fromColumn = cell - fromRow * columns;
+            if (single ? cell == endCell : targets.contains(fromRow, fromColumn)) {
+                // Cells come off the queue in order of distance, so the first target is the nearest one
+                // and the path can be walked back from it
+                if (nearest < 0) {
+                    nearest = cell;
                 }
+                if (!all || --remaining == 0) {
+                    break;
+                }
+                continue;
+            }
+
+            // Explore all possible movements from the current position
+            for (int i = 0; i < movableCoordinates.length; i++) {
+                int stop;
+                if (slideTable != null) {
+                    // Look the stop cell up, stopping on a single target or the nearest of a set in the way
+                    stop = single ? slideTable.stopOf(i, cell, endRow, endColumn)
+                            : stopAtTarget(targets, i, cell, fromRow, fromColumn, columns, slideTable.stopOf(i, cell));
+                } else if (slideScanner != null) {
+                    // Search the row or column words for the next wall, stopping on a single target in the same pass
+                    stop = slideScanner.stopOf(i, fromRow, fromColumn, endRow, endColumn);
+                    if (!single) {
+                        stop = stopAtTarget(targets, i, cell, fromRow, fromColumn, columns, stop);
+                    }
+                } else {
+                    int row = fromRow;
+                    int column = fromColumn;
+                    // Move in the current direction until an obstacle is encountered or a target is reached,
+                    // the wall border of the grid stops slides at the edge of the maze
+                    while (!grid.isWall(row, column) && (single ? row != endRow || column != endColumn : !targets.contains(row, column))) {
+                        row += movableCoordinates[i][0];
+                        column += movableCoordinates[i][1];
+                    }
 
+                    // If no target is reached, backtrack to the previous valid position
+                    if (single ? row != endRow || column != endColumn : grid.isWall(row, column)) {
+                        row -= movableCoordinates[i][0];
+                        column -= movableCoordinates[i][1];
+                    }
+                    stop = row * columns + column;
+                }
+                if (instrument) {
+                    cellsScanned += i < 2 ? Math.abs(stop / columns - fromRow) : Math.abs(stop - cell);
+                }
 
                 // If the new position has not been visited, mark it as visited and add it to the queue
-                if (!visited[row][column]) {
-                    visited[row][column] = true;
-                    // Add the new position to the queue along with updated path information
-                    queueList.offer(new Coordinate(row, column, movements, path + step + ". " + movableDirections[i] + " (" + (column + 1) + ", " + (row + 1) + ")\n", mazeStartPos, step + 1));
+                if (!isVisited(stop)) {
+                    markVisited(stop);
+                    parent[stop] = cell;
+                    dirTo[stop] = (byte) i;
+                    queue[tail++] = stop;
                 }
             }
+            if (instrument && tail - head > peakFrontier) {
+                peakFrontier = tail - head;
+            }
         }
-        // If no path is found, return appropriate message
-        return "No path was found!";
+        outcome = nearest >= 0 ? Outcome.FOUND : Outcome.NO_PATH;
+        nodesEnqueued = tail;
+        return nearest;
     }
 
-    // Class representing coordinates in the maze
-    static class Coordinate {
-        int row;
-        int column;
-        int movements;
-        String path;
-        int step;
-        int[] startCoordinates;
+    /**
+     * Cut a slide short at the nearest target between its start and the wall it stops at.
+     * Both lie on the line of the slide, so the nearer is the larger index going up or left and the smaller
+     * going down or right, and a missing target lies past the border of the maze.
+     * @param targets    The ending positions
+     * @param direction  The direction of the slide
+     * @param cell       The index of the cell the slide starts from
+     * @param fromRow    The row of that cell
+     * @param fromColumn The column of that cell
+     * @param columns    The number of columns in the maze
+     * @param wallStop   The index of the cell where the slide stops at a wall
+     * @return The index of the cell where the slide stops
+     */
+    private static int stopAtTarget(TargetSet targets, int direction, int cell, int fromRow, int fromColumn, int columns,
+                                    int wallStop) {
+        int target = targets.nearest(direction, fromRow, fromColumn);
+        return switch (direction) {
+            case SlideTable.UP -> Math.max(wallStop, target * columns + fromColumn);
+            case SlideTable.DOWN -> Math.min(wallStop, target * columns + fromColumn);
+            case SlideTable.LEFT -> Math.max(wallStop, cell - fromColumn + target);
+            default -> Math.min(wallStop, cell - fromColumn + target);
+        };
+    }
 
-        Coordinate(int row, int column, int movements, String path, int[] startCoordinates, int step) {
-            // Initialize the row of the coordinate
-            this.row = row;
-            // Initialize the column of the coordinate
-            this.column = column;
-            // Initialize the number of movements required to reach this coordinate
-            this.movements = movements;
-            // Initialize the path to reach this coordinate
-            this.path = path;
-            // Initialize the starting coordinates of the maze
-            this.startCoordinates = startCoordinates;
-            // Initialize the step number of this coordinate in the path
-            this.step = step;
+    /**
+     * Make sure the scratch buffers can hold a maze of the given size and clear the visited bits.
+     * @param cells The number of cells in the maze
+     */
+    private void prepare(int cells) {
+        if (queue.length < cells) {
+            queue = new int[cells];
+            parent = new int[cells];
+            dirTo = new byte[cells];
+            visited = new long[(cells + 63) >>> 6];
+        } else {
+            Arrays.fill(visited, 0, (cells + 63) >>> 6, 0L);
         }
+    }
 
+    /**
+     * Check if a cell has been visited in the current search.
+     * @param cell The index of the cell
+     * @return true if the cell has been visited, otherwise false
+     */
+    private boolean isVisited(int cell) {
+        return (visited[cell >>> 6] & (1L << cell)) != 0;
+    }
 
-        @Override
-        public String toString() {
-            // Return the path as a string
-            return "Start at: (" + (startCoordinates[1] + 1) + ", " + (startCoordinates[0] + 1) + ")\n" + path;
+    /**
+     * Mark a cell as visited in the current search.
+     * @param cell The index of the cell
+     */
+    private void markVisited(int cell) {
+        visited[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * Build the path text by walking the parent pointers back from the end cell.
+     * @param endCell   The index of the end cell
+     * @param startCell The index of the start cell
+     * @param columns   The number of columns in the maze
+     * @return The path in the format "Start at: (x, y)" followed by one numbered move per line
+     */
+    private String buildPath(int endCell, int startCell, int columns) {
+        // Count the moves first so the cells can be laid out from start to end
+        int steps = 0;
+        for (int cell = endCell; cell != startCell; cell = parent[cell]) {
+            steps++;
         }
+        int[] cells = new int[steps];
+        byte[] directions = new byte[steps];
+        int index = steps;
+        for (int cell = endCell; cell != startCell; cell = parent[cell]) {
+            cells[--index] = cell;
+            directions[index] = dirTo[cell];
+        }
+        return formatPath(startCell, cells, directions, steps, columns);
+    }
+
+    /**
+     * Format a path as text.
+     * @param startCell  The index of the start cell
+     * @param cells      The index of the cell reached by every move, from start to end
+     * @param directions The direction of every move, from start to end
+     * @param steps      The number of moves
+     * @param columns    The number of columns in the maze
+     * @return The path in the format "Start at: (x, y)" followed by one numbered move per line
+     */
+    static String formatPath(int startCell, int[] cells, byte[] directions, int steps, int columns) {
+        StringBuilder path = new StringBuilder(32 + steps * 32);
+        path.append("Start at: (").append(startCell % columns + 1).append(", ").append(startCell / columns + 1).append(")\n");
+        for (int step = 0; step < steps; step++) {
+            int cell = cells[step];
+            path.append(step + 1).append(". ").append(movableDirections[directions[step]])
+                    .append(" (").append(cell % columns + 1).append(", ").append(cell / columns + 1).append(")\n");
+        }
+        return path.toString();
+    }
+
+    /**
+     * Get the time spent building the slide table or slide scanner during the last search.
+     * @return The build time in nanoseconds, 0 when slides are scanned one cell at a time
+     */
+    public long getBuildTimeNanos() {
+        return buildTimeNanos;
+    }
+
+    /**
+     * Get the number of cells taken off the queue during the last search.
+     * @return The number of expanded cells
+     */
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /**
+     * Get the time spent searching during the last search, excluding the slide table build.
+     * @return The search time in nanoseconds
+     */
+    public long getSearchTimeNanos() {
+        return searchTimeNanos;
+    }
+
+    /**
+     * Receives the moves of a path one at a time.
+     */
+    interface MoveVisitor {
+        /**
+         * Handle one move.
+         * @param step      The number of the move, starting at 1
+         * @param direction The direction of the move
+         * @param cell      The index of the cell where the move stops
+         * @throws IOException If the move cannot be written
+         */
+        void move(int step, int direction, int cell) throws IOException;
     }
 }
@@ -0,0 +1,356 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * This program solves every puzzle file in a folder or matching a glob without any prompts.
+ * Files are read on virtual threads and solved on a fixed pool with one thread per processor,
+ * and one result line is written per file as CSV or JSON lines.
+ * With a solution cache, a board solved before is answered on the reading thread without taking a solver thread.
+ */
+public class BatchSolver {
+    // Solutions kept in memory in front of the store given with --solutions
+    private static final int solutionCacheSize = 1024;
+
+    private final int solverThreads;
+    private final boolean json;
+    private final BFSAlgorithm.SlideMode slideMode;
+    // Folder of binary copies of the puzzles, or null to always parse the text
+    private final Path cacheFolder;
+    // Limits of every search, 0 for none
+    private final long timeoutMillis;
+    private final long maxSearchBytes;
+    // Solutions of boards solved before, or null to search every board
+    private final SolutionCache solutions;
+
+    // One solver per pool thread, so the search scratch buffers are reused from file to file
+    private final ThreadLocal<BFSAlgorithm> solvers;
+    // Held while a result line is written, by the virtual threads reading the files
+    private final ReentrantLock outputLock = new ReentrantLock();
+
+    /**
+     * Create a batch solver.
+     * @param solverThreads  The number of threads solving puzzles at the same time
+     * @param json           true to write JSON lines, false to write CSV
+     * @param slideMode      The way slides are followed during the search
+     * @param cacheFolder    The folder of the binary maze cache, or null to parse every file
+     * @param timeoutMillis  The time one search may take, or 0 for no limit
+     * @param maxSearchBytes The memory one search may need, or 0 for no limit
+     * @param solutions      The cache of solutions to look boards up in and add new ones to, or null to search every board
+     */
+    public BatchSolver(int solverThreads, boolean json, BFSAlgorithm.SlideMode slideMode, Path cacheFolder,
+                       long timeoutMillis, long maxSearchBytes, SolutionCache solutions) {
+        this.solverThreads = solverThreads;
+        this.json = json;
+        this.slideMode = slideMode;
+        this.cacheFolder = cacheFolder;
+        this.timeoutMillis = timeoutMillis;
+        this.maxSearchBytes = maxSearchBytes;
+        this.solutions = solutions;
+        this.solvers = ThreadLocal.withInitial(() -> new BFSAlgorithm(this.slideMode));
+    }
+
+    /**
+     * Run the batch solver.
+     * @param args A folder or glob of puzzle files, followed by the optional flags
+     *             --json, --threads N, --mode scan|table|word, --cache FOLDER, --timeout MILLIS, --max-memory MB
+     *             and --solutions FILE
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: BatchSolver <folder or glob> [--json] [--threads N] [--mode scan|table|word] [--cache folder]"
+                    + " [--timeout millis] [--max-memory MB] [--solutions file]");
+            return;
+        }
+        boolean json = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        BFSAlgorithm.SlideMode mode = BFSAlgorithm.SlideMode.WORD;
+        Path cache = null;
+        long timeout = 0;
+        long maxMemory = 0;
+        Path solutionStore = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--json" -> json = true;
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--mode" -> mode = BFSAlgorithm.SlideMode.valueOf(args[++i].toUpperCase());
+                case "--cache" -> cache = Path.of(args[++i]);
+                case "--timeout" -> timeout = Long.parseLong(args[++i]);
+                case "--max-memory" -> maxMemory = Long.parseLong(args[++i]) << 20;
+                case "--solutions" -> solutionStore = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        SolutionCache solutions = solutionStore == null ? null : new SolutionCache(solutionCacheSize, solutionStore);
+        try {
+            new BatchSolver(threads, json, mode, cache, timeout, maxMemory, solutions).run(findPuzzleFiles(args[0]), out);
+            out.flush();
+        } finally {
+            if (solutions != null) {
+                solutions.close();
+                System.err.println(solutions.toSummaryLine());
+            }
+        }
+    }
+
+    /**
+     * Find the puzzle files to solve.
+     * @param folderOrGlob A folder, whose .txt files are used, or a glob such as "PuzzleFiles/maze*.txt"
+     * @return The matching files in name order
+     * @throws IOException If the folder cannot be listed
+     */
+    public static List<Path> findPuzzleFiles(String folderOrGlob) throws IOException {
+        Path folder = Path.of(folderOrGlob);
+        PathMatcher matcher;
+        if (Files.isDirectory(folder)) {
+            matcher = FileSystems.getDefault().getPathMatcher("glob:*.txt");
+        } else {
+            // Split the glob into the longest folder without wildcards and the pattern below it
+            int wildcard = indexOfWildcard(folderOrGlob);
+            int separator = folderOrGlob.lastIndexOf('/', wildcard < 0 ? folderOrGlob.length() : wildcard);
+            folder = Path.of(separator < 0 ? "." : folderOrGlob.substring(0, separator + 1));
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + folderOrGlob.substring(separator + 1));
+        }
+
+        Path root = folder;
+        PathMatcher filter = matcher;
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> filter.matches(root.relativize(file)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Find the first glob wildcard in a string.
+     * @param glob The glob
+     * @return The index of the first wildcard, or -1 if there is none
+     */
+    private static int indexOfWildcard(String glob) {
+        for (int i = 0; i < glob.length(); i++) {
+            if ("*?[{".indexOf(glob.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Solve every file, writing one result line per file in the order the files finish.
+     * @param files The puzzle files
+     * @param out   The writer the result lines are written to
+     * @throws InterruptedException If the batch is interrupted
+     */
+    public void run(List<Path> files, Writer out) throws InterruptedException {
+        // Limit the files held in memory to a few per solver thread
+        Semaphore inFlight = new Semaphore(solverThreads * 2);
+        ExecutorService solverPool = Executors.newFixedThreadPool(solverThreads);
+        try (ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (!json) {
+                write(out, "file,rows,columns,steps,cells_travelled,parse_ms,search_ms,error\n");
+            }
+            List<Future<?>> pending = new ArrayList<>(files.size());
+            for (Path file : files) {
+                inFlight.acquire();
+                pending.add(readers.submit(() -> {
+                    try {
+                        write(out, format(solveFile(file, solverPool)));
+                    } finally {
+                        inFlight.release();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : pending) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Batch solve failed", e.getCause());
+                }
+            }
+        } finally {
+            solverPool.shutdown();
+        }
+    }
+
+    /**
+     * Read a puzzle on the calling thread and solve it on the solver pool.
+     * @param file       The puzzle file
+     * @param solverPool The pool the search runs on
+     * @return The result of the file
+     */
+    private Result solveFile(Path file, ExecutorService solverPool) throws InterruptedException {
+        long parseStart = System.nanoTime();
+        Puzzle puzzle;
+        try {
+            puzzle = cacheFolder == null ? Puzzle.load(file) : MazeFile.loadCached(file, cacheFolder);
+        } catch (IOException e) {
+            return new Result(file, 0, 0, -1, -1, System.nanoTime() - parseStart, 0, e.getMessage());
+        }
+        long parseNanos = System.nanoTime() - parseStart;
+        MazeGrid grid = puzzle.getGrid();
+
+        if (solutions != null) {
+            long lookupStart = System.nanoTime();
+            try {
+                SolutionCache.Solution solution = solutions.get(puzzle);
+                if (solution != null) {
+                    return new Result(file, grid.getRows(), grid.getColumns(), solution.getSteps(), solution.getCellsTravelled(),
+                            parseNanos, System.nanoTime() - lookupStart, null);
+                }
+            } catch (IOException e) {
+                // An unreadable store only costs the search
+            }
+        }
+        try {
+            return solverPool.submit(() -> {
+                BFSAlgorithm solver = solvers.get();
+                // The deadline starts when the search does, not while the file waits for a solver thread
+                solver.setLimits(timeoutMillis > 0 || maxSearchBytes > 0 ? new SolveLimits(timeoutMillis, maxSearchBytes) : null);
+                solver.solve(puzzle);
+                BFSAlgorithm.Outcome outcome = solver.getOutcome();
+                // A search stopped by its limits is reported as an error, with the time it ran for
+                String error = outcome == BFSAlgorithm.Outcome.FOUND || outcome == BFSAlgorithm.Outcome.NO_PATH ? null : solver.getPath();
+                if (solutions != null && error == null) {
+                    try {
+                        solutions.put(puzzle, solver);
+                    } catch (IOException e) {
+                        // The result does not depend on the store, so the file is still reported as solved
+                    }
+                }
+                return new Result(file, grid.getRows(), grid.getColumns(), solver.getSteps(), solver.getCellsTravelled(),
+                        parseNanos, solver.getBuildTimeNanos() + solver.getSearchTimeNanos(), error);
+            }).get();
+        } catch (ExecutionException e) {
+            return new Result(file, grid.getRows(), grid.getColumns(), -1, -1, parseNanos, 0, String.valueOf(e.getCause()));
+        }
+    }
+
+    /**
+     * Format a result as a CSV or JSON line.
+     * @param result The result of a file
+     * @return The line, ending with a newline
+     */
+    private String format(Result result) {
+        if (json) {
+            return "{\"file\":" + jsonString(result.file().toString())
+                    + ",\"rows\":" + result.rows()
+                    + ",\"columns\":" + result.columns()
+                    + ",\"steps\":" + result.steps()
+                    + ",\"cells_travelled\":" + result.cellsTravelled()
+                    + ",\"parse_ms\":" + millis(result.parseNanos())
+                    + ",\"search_ms\":" + millis(result.searchNanos())
+                    + ",\"error\":" + (result.error() == null ? "null" : jsonString(result.error()))
+                    + "}\n";
+        }
+        return csvField(result.file().toString())
+                + "," + result.rows()
+                + "," + result.columns()
+                + "," + result.steps()
+                + "," + result.cellsTravelled()
+                + "," + millis(result.parseNanos())
+                + "," + millis(result.searchNanos())
+                + "," + (result.error() == null ? "" : csvField(result.error()))
+                + "\n";
+    }
+
+    /**
+     * Format a duration in milliseconds with three decimals and a decimal point in every locale.
+     * @param nanos The duration in nanoseconds
+     * @return The formatted milliseconds
+     */
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /**
+     * Quote a CSV field if it contains a comma, quote or newline.
+     * @param value The field value
+     * @return The field as it should appear in the CSV line
+     */
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Quote and escape a JSON string.
+     * @param value The string value
+     * @return The JSON string literal
+     */
+    static String jsonString(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.append('"').toString();
+    }
+
+    /**
+     * Write a line, keeping lines from different threads whole.
+     * The lock is a ReentrantLock rather than a monitor, so a reader thread blocked on the write
+     * does not pin the carrier thread it runs on.
+     * @param out  The writer
+     * @param line The line to write
+     */
+    private void write(Writer out, String line) {
+        outputLock.lock();
+        try {
+            out.write(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            outputLock.unlock();
+        }
+    }
+
+    /**
+     * The outcome of solving one file.
+     * @param file           The puzzle file
+     * @param rows           The number of rows, 0 if the file could not be read
+     * @param columns        The number of columns, 0 if the file could not be read
+     * @param steps          The number of moves on the shortest path, -1 if there is none
+     * @param cellsTravelled The number of cells travelled along the path, -1 if there is none
+     * @param parseNanos     The time spent reading the file
+     * @param searchNanos    The time spent searching, including any slide table build
+     * @param error          The reason the file could not be solved, or null
+     */
+    record Result(Path file, int rows, int columns, int steps, long cellsTravelled, long parseNanos, long searchNanos, String error) {
+    }
+}
@@ -0,0 +1,251 @@
+import java.util.Arrays;
+
+/**
+ * This class finds a shortest path with a bidirectional BFS, searching forwards from the start position
+ * and backwards from the end position until the two searches meet.
+ * The backward search follows the reverse slides: the cells that slide into a cell and stop there,
+ * including the cells whose slide stops early because it passes through the end position.
+ * Each step expands one whole level of the smaller frontier, which keeps the path found a minimum-step path,
+ * although it can be a different path of the same length than the one BFSAlgorithm returns.
+ */
+public class BidirectionalBFS {
+    private long forwardExpanded;
+    private long backwardExpanded;
+    private long searchTimeNanos;
+
+    // Scratch buffers indexed by row * columns + column, kept between searches
+    private int[] forwardQueue = new int[0];
+    private int[] backwardQueue = new int[0];
+    private int[] forwardDistance = new int[0];
+    private int[] backwardDistance = new int[0];
+    // The cell each cell was reached from in the forward search, and the cell it leads to in the backward search
+    private int[] forwardParent = new int[0];
+    private int[] backwardNext = new int[0];
+    // The direction of the move into a cell in the forward search, and out of a cell in the backward search
+    private byte[] forwardDirection = new byte[0];
+    private byte[] backwardDirection = new byte[0];
+
+    // The path of the last search
+    private int[] pathCells = new int[0];
+    private byte[] pathDirections = new byte[0];
+    private int steps = -1;
+    private int startCell;
+    private int columns;
+
+    /**
+     * Finds the shortest path from start position to end position in a bit-packed maze using bidirectional BFS.
+     * @param grid          The bit-packed maze
+     * @param mazeStartPos  The starting position in the maze. mazeStartPos[0] represents the row and mazeStartPos[1] represents the column.
+     * @param mazeEndPos    The ending position in the maze. mazeEndPos[0] represents the row and mazeEndPos[1] represents the column.
+     * @return The shortest path from start to end position in the maze
+     */
+    public String shortestDistance(MazeGrid grid, int[] mazeStartPos, int[] mazeEndPos) {
+        solve(new SlideTable(grid), grid, mazeStartPos, mazeEndPos);
+        return getPath();
+    }
+
+    /**
+     * Run the search without building the path text.
+     * @param slideTable    The slide table of the maze, used for the forward slides
+     * @param grid          The bit-packed maze
+     * @param mazeStartPos  The starting position in the maze
+     * @param mazeEndPos    The ending position in the maze
+     * @return true if a path was found, otherwise false
+     */
+    public boolean solve(SlideTable slideTable, MazeGrid grid, int[] mazeStartPos, int[] mazeEndPos) {
+        long searchStart = System.nanoTime();
+        columns = grid.getColumns();
+        int cells = grid.getRows() * columns;
+        int endRow = mazeEndPos[0];
+        int endColumn = mazeEndPos[1];
+        int endCell = endRow * columns + endColumn;
+        startCell = mazeStartPos[0] * columns + mazeStartPos[1];
+        prepare(cells);
+        forwardExpanded = 0;
+        backwardExpanded = 0;
+        steps = -1;
+
+        int forwardHead = 0;
+        int forwardTail = 0;
+        int backwardHead = 0;
+        int backwardTail = 0;
+        forwardDistance[startCell] = 0;
+        forwardQueue[forwardTail++] = startCell;
+        backwardDistance[endCell] = 0;
+        backwardQueue[backwardTail++] = endCell;
+
+        // The best meeting found so far, as the move from a forward cell to a backward cell
+        int best = startCell == endCell ? 0 : Integer.MAX_VALUE;
+        int meetFrom = -1;
+        int meetTo = -1;
+        int meetDirection = -1;
+
+        while (best == Integer.MAX_VALUE && forwardHead < forwardTail && backwardHead < backwardTail) {
+            if (forwardTail - forwardHead <= backwardTail - backwardHead) {
+                // Expand one whole level of the forward frontier
+                int levelEnd = forwardTail;
+                while (forwardHead < levelEnd) {
+                    int cell = forwardQueue[forwardHead++];
+                    forwardExpanded++;
+                    for (int i = 0; i < BFSAlgorithm.movableCoordinates.length; i++) {
+                        int stop = slideTable.stopOf(i, cell, endRow, endColumn);
+                        if (backwardDistance[stop] >= 0 && forwardDistance[cell] + 1 + backwardDistance[stop] < best) {
+                            best = forwardDistance[cell] + 1 + backwardDistance[stop];
+                            meetFrom = cell;
+                            meetTo = stop;
+                            meetDirection = i;
+                        }
+                        if (forwardDistance[stop] < 0) {
+                            forwardDistance[stop] = forwardDistance[cell] + 1;
+                            forwardParent[stop] = cell;
+                            forwardDirection[stop] = (byte) i;
+                            forwardQueue[forwardTail++] = stop;
+                        }
+                    }
+                }
+            } else {
+                // Expand one whole level of the backward frontier
+                int levelEnd = backwardTail;
+                while (backwardHead < levelEnd) {
+                    int cell = backwardQueue[backwardHead++];
+                    backwardExpanded++;
+                    int row = cell / columns;
+                    int column = cell - row * columns;
+                    for (int i = 0; i < BFSAlgorithm.movableCoordinates.length; i++) {
+                        int rowStep = BFSAlgorithm.movableCoordinates[i][0];
+                        int columnStep = BFSAlgorithm.movableCoordinates[i][1];
+                        // A slide in this direction only stops here at a wall or on the end position
+                        if (cell != endCell && !grid.isWall(row + rowStep, column + columnStep)) {
+                            continue;
+                        }
+                        // Every empty cell behind this one slides into it, up to and including the end position
+                        int fromRow = row - rowStep;
+                        int fromColumn = column - columnStep;
+                        while (!grid.isWall(fromRow, fromColumn)) {
+                            int from = fromRow * columns + fromColumn;
+                            if (forwardDistance[from] >= 0 && forwardDistance[from] + 1 + backwardDistance[cell] < best) {
+                                best = forwardDistance[from] + 1 + backwardDistance[cell];
+                                meetFrom = from;
+                                meetTo = cell;
+                                meetDirection = i;
+                            }
+                            if (backwardDistance[from] < 0) {
+                                backwardDistance[from] = backwardDistance[cell] + 1;
+                                backwardNext[from] = cell;
+                                backwardDirection[from] = (byte) i;
+                                backwardQueue[backwardTail++] = from;
+                            }
+                            if (from == endCell) {
+                                break;
+                            }
+                            fromRow -= rowStep;
+                            fromColumn -= columnStep;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (best != Integer.MAX_VALUE) {
+            recordPath(best, meetFrom, meetTo, meetDirection, endCell);
+        }
+        searchTimeNanos = System.nanoTime() - searchStart;
+        return steps >= 0;
+    }
+
+    /**
+     * Join the forward path to the meeting move and the backward path after it.
+     * @param length        The number of moves on the path
+     * @param meetFrom      The forward cell of the meeting move, -1 if the start is the end
+     * @param meetTo        The backward cell of the meeting move
+     * @param meetDirection The direction of the meeting move
+     * @param endCell       The index of the end cell
+     */
+    private void recordPath(int length, int meetFrom, int meetTo, int meetDirection, int endCell) {
+        if (pathCells.length < length) {
+            pathCells = new int[length];
+            pathDirections = new byte[length];
+        }
+        steps = length;
+        if (length == 0) {
+            return;
+        }
+        // Walk the forward parents back from the meeting move
+        int index = forwardDistance[meetFrom];
+        for (int cell = meetFrom; cell != startCell; cell = forwardParent[cell]) {
+            index--;
+            pathCells[index] = cell;
+            pathDirections[index] = forwardDirection[cell];
+        }
+        index = forwardDistance[meetFrom];
+        pathCells[index] = meetTo;
+        pathDirections[index++] = (byte) meetDirection;
+        // Follow the backward links on to the end position
+        for (int cell = meetTo; cell != endCell; cell = backwardNext[cell]) {
+            pathCells[index] = backwardNext[cell];
+            pathDirections[index++] = backwardDirection[cell];
+        }
+    }
+
+    /**
+     * Make sure the scratch buffers can hold a maze of the given size and clear the distances.
+     * @param cells The number of cells in the maze
+     */
+    private void prepare(int cells) {
+        if (forwardQueue.length < cells) {
+            forwardQueue = new int[cells];
+            backwardQueue = new int[cells];
+            forwardDistance = new int[cells];
+            backwardDistance = new int[cells];
+            forwardParent = new int[cells];
+            backwardNext = new int[cells];
+            forwardDirection = new byte[cells];
+            backwardDirection = new byte[cells];
+        }
+        Arrays.fill(forwardDistance, 0, cells, -1);
+        Arrays.fill(backwardDistance, 0, cells, -1);
+    }
+
+    /**
+     * Get the path found by the last search.
+     * @return The path in the format "Start at: (x, y)" followed by one numbered move per line, or a message if no path was found
+     */
+    public String getPath() {
+        if (steps < 0) {
+            return "No path was found!";
+        }
+        return BFSAlgorithm.formatPath(startCell, pathCells, pathDirections, steps, columns);
+    }
+
+    /**
+     * Get the number of moves on the path found by the last search.
+     * @return The number of moves, or -1 if no path was found
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * Get the number of cells expanded by the forward search during the last search.
+     * @return The number of cells expanded from the start side
+     */
+    public long getForwardExpanded() {
+        return forwardExpanded;
+    }
+
+    /**
+     * Get the number of cells expanded by the backward search during the last search.
+     * @return The number of cells expanded from the end side
+     */
+    public long getBackwardExpanded() {
+        return backwardExpanded;
+    }
+
+    /**
+     * Get the time spent searching during the last search.
+     * @return The search time in nanoseconds
+     */
+    public long getSearchTimeNanos() {
+        return searchTimeNanos;
+    }
+}
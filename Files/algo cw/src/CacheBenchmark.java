@@ -0,0 +1,90 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * This program measures how much the binary maze cache saves when a puzzle is loaded again.
+ * It compares parsing the text file, a cold load through an empty cache (parse, then write the binary copy),
+ * a warm load served from the cache, and reading a binary maze file directly.
+ */
+public class CacheBenchmark {
+    private static final int warmupRuns = 5;
+    private static final int measuredRuns = 20;
+
+    /**
+     * Run the benchmark.
+     * @param args Optional puzzle file, "algo cw/PuzzleFiles/puzzle_1280.txt" by default
+     */
+    public static void main(String[] args) throws Exception {
+        Path textFile = new File(args.length > 0 ? args[0] : "algo cw/PuzzleFiles/puzzle_1280.txt").toPath();
+        Path cacheFolder = Files.createTempDirectory("maze_cache_");
+        Path binaryFile = cacheFolder.resolve("direct" + MazeFile.extension);
+        try {
+            Puzzle expected = Puzzle.load(textFile);
+            MazeFile.write(expected, binaryFile);
+            System.out.println("Puzzle: " + textFile.getFileName() + " (" + expected.getGrid().getRows() + " x "
+                    + expected.getGrid().getColumns() + "), text " + Files.size(textFile) / 1024 + " KB, binary "
+                    + Files.size(binaryFile) / 1024 + " KB");
+            System.out.printf("%-14s %12s %10s%n", "Load", "Avg (ms)", "Speed-up");
+
+            double parse = measure(() -> Puzzle.load(textFile), expected);
+            double cold = measure(() -> {
+                // Every cold run starts from an empty cache
+                try (Stream<Path> cached = Files.list(cacheFolder)) {
+                    for (Path file : cached.filter(file -> !file.equals(binaryFile)).toList()) {
+                        Files.delete(file);
+                    }
+                }
+                return MazeFile.loadCached(textFile, cacheFolder);
+            }, expected);
+            double warm = measure(() -> MazeFile.loadCached(textFile, cacheFolder), expected);
+            double binary = measure(() -> MazeFile.read(binaryFile), expected);
+
+            System.out.printf("%-14s %12.3f %10.2f%n", "text parse", parse, 1.0);
+            System.out.printf("%-14s %12.3f %10.2f%n", "cache cold", cold, parse / cold);
+            System.out.printf("%-14s %12.3f %10.2f%n", "cache warm", warm, parse / warm);
+            System.out.printf("%-14s %12.3f %10.2f%n", "binary read", binary, parse / binary);
+        } finally {
+            try (Stream<Path> files = Files.walk(cacheFolder)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Time a load, checking that it gives the same maze as the text parse.
+     * @param load     The load to time
+     * @param expected The puzzle parsed from the text file
+     * @return The average time of a measured run in milliseconds
+     * @throws Exception If the load fails
+     */
+    private static double measure(Load load, Puzzle expected) throws Exception {
+        long nanos = 0;
+        for (int run = 0; run < warmupRuns + measuredRuns; run++) {
+            long start = System.nanoTime();
+            Puzzle puzzle = load.run();
+            long elapsed = System.nanoTime() - start;
+            if (run >= warmupRuns) {
+                nanos += elapsed;
+            }
+            if (!Arrays.equals(puzzle.getGrid().getWords(), expected.getGrid().getWords())
+                    || !Arrays.equals(puzzle.getStartingPos(), expected.getStartingPos())
+                    || !Arrays.equals(puzzle.getEndingPos(), expected.getEndingPos())) {
+                throw new IllegalStateException("A load gave a different puzzle");
+            }
+        }
+        return nanos / 1e6 / measuredRuns;
+    }
+
+    /**
+     * A way of loading the puzzle.
+     */
+    interface Load {
+        Puzzle run() throws Exception;
+    }
+}
@@ -0,0 +1,474 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * This class holds the distance field of a maze from its starting position: for every cell, the fewest moves needed
+ * to stop on it if it were the ending position. One exhaustive BFS finds the whole field, where finding it with
+ * BFSAlgorithm takes one search per cell. A slide passing through the ending position stops on it, so a cell is
+ * reached by the first slide that crosses it, not only by a slide that stops on it: the search marks every cell
+ * crossed by a slide from a cell of level d with d + 1, and carries on from the stop cells as usual.
+ * Because the search is the same up to that first crossing, the distances and paths are the ones BFSAlgorithm finds.
+ * For every cell the cell its last slide starts from is kept, and for every stop cell the stop cell before it,
+ * so the path to any cell can be walked back. The field needs 16 bytes per cell while it is built.
+ * <p>
+ * The statistics of the field (reachable cells, eccentricity, unreachable regions) are gathered in the same run.
+ * The field can be written as a binary file of a header of eight big-endian ints (magic, version, rows, columns,
+ * start row, start column, eccentricity and reachable cells) followed by three big-endian int arrays in row-major
+ * order: the distance of every cell (-1 if it cannot be reached, -2 for a wall), the cell its last slide starts from,
+ * and the stop cell before every stop cell (-1 where there is none). It can also be written as a CSV of the
+ * reachable cells, a PGM image or an ASCII heatmap.
+ */
+public class DistanceField {
+    // "SLDF" followed by the format version
+    private static final int magic = 0x534C4446;
+    private static final int version = 1;
+    private static final String[] directionNames = {"up", "down", "left", "right"};
+    // Distances of the cells that cannot be reached
+    private static final int unreachable = -1;
+    private static final int wall = -2;
+    // Distance of cells not yet reached while the field is built
+    private static final int unseen = -3;
+
+    private final String fileName;
+    private final int rows;
+    private final int columns;
+    private final int startCell;
+    private final int[] distance;
+    private final int[] from;
+    private final int[] stopFrom;
+
+    // Statistics gathered while the field is built
+    private int freeCells;
+    private int reachableCells;
+    private int stopCells;
+    private int eccentricity;
+    private int farthestCell;
+    private long distanceSum;
+    private int unreachableRegions;
+    private int largestRegion;
+    private long cellsScanned;
+    private long buildNanos;
+
+    /**
+     * Create an empty field.
+     * @param fileName  The name of the puzzle file, or null
+     * @param rows      The number of rows in the maze
+     * @param columns   The number of columns in the maze
+     * @param startCell The index of the starting position
+     */
+    private DistanceField(String fileName, int rows, int columns, int startCell) {
+        int cells = rows * columns;
+        this.fileName = fileName;
+        this.rows = rows;
+        this.columns = columns;
+        this.startCell = startCell;
+        this.distance = new int[cells];
+        this.from = new int[cells];
+        this.stopFrom = new int[cells];
+    }
+
+    /**
+     * Compute the distance field of a loaded puzzle from its starting position. The ending position is ignored.
+     * @param puzzle The loaded puzzle
+     * @return The distance field
+     */
+    public static DistanceField compute(Puzzle puzzle) {
+        return compute(puzzle.getFileName(), puzzle.getGrid(), puzzle.getStartingPos());
+    }
+
+    /**
+     * Compute the distance field of a maze from a starting position.
+     * @param fileName     The name of the puzzle file, or null
+     * @param grid         The bit-packed maze
+     * @param mazeStartPos The starting position in the maze
+     * @return The distance field
+     */
+    public static DistanceField compute(String fileName, MazeGrid grid, int[] mazeStartPos) {
+        long begin = System.nanoTime();
+        int rows = grid.getRows();
+        int columns = grid.getColumns();
+        DistanceField field = new DistanceField(fileName, rows, columns, mazeStartPos[0] * columns + mazeStartPos[1]);
+        field.search(grid);
+        field.classifyUnreached(grid);
+        field.buildNanos = System.nanoTime() - begin;
+        return field;
+    }
+
+    /**
+     * Run the exhaustive BFS over the stop cells, giving every cell a slide crosses or stops on its distance.
+     * @param grid The bit-packed maze
+     */
+    private void search(MazeGrid grid) {
+        int cells = rows * columns;
+        int[] steps = {-columns, columns, -1, 1};
+        Arrays.fill(distance, unseen);
+        Arrays.fill(from, -1);
+        Arrays.fill(stopFrom, -1);
+        long[] stops = new long[(cells + 63) >>> 6];
+        int[] queue = new int[cells];
+
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = startCell;
+        stops[startCell >>> 6] |= 1L << startCell;
+        stopCells = 1;
+        distance[startCell] = 0;
+        reachableCells = 1;
+        farthestCell = startCell;
+
+        // The queue holds the stop cells of one level after the next, the level ends where the queue ended when it began
+        int level = -1;
+        int levelEnd = head;
+        while (head < tail) {
+            if (head == levelEnd) {
+                level++;
+                levelEnd = tail;
+            }
+            int cell = queue[head++];
+            int fromRow = cell / columns;
+            int fromColumn = cell - fromRow * columns;
+            for (int i = 0; i < steps.length; i++) {
+                int row = fromRow + BFSAlgorithm.movableCoordinates[i][0];
+                int column = fromColumn + BFSAlgorithm.movableCoordinates[i][1];
+                int stop = cell;
+                // Slide until the next wall, every cell crossed on the way is reached one move after this cell
+                while (!grid.isWall(row, column)) {
+                    stop += steps[i];
+                    if (distance[stop] == unseen) {
+                        distance[stop] = level + 1;
+                        from[stop] = cell;
+                        reachableCells++;
+                        distanceSum += level + 1;
+                        if (level + 1 > eccentricity) {
+                            eccentricity = level + 1;
+                            farthestCell = stop;
+                        }
+                    }
+                    row += BFSAlgorithm.movableCoordinates[i][0];
+                    column += BFSAlgorithm.movableCoordinates[i][1];
+                }
+                cellsScanned += i < 2 ? Math.abs(stop / columns - fromRow) : Math.abs(stop - cell);
+
+                if ((stops[stop >>> 6] & (1L << stop)) == 0) {
+                    stops[stop >>> 6] |= 1L << stop;
+                    stopFrom[stop] = cell;
+                    stopCells++;
+                    queue[tail++] = stop;
+                }
+            }
+        }
+    }
+
+    /**
+     * Mark the walls and count the regions of free cells that cannot be reached, flooding each region
+     * through its four neighbours.
+     * @param grid The bit-packed maze
+     */
+    private void classifyUnreached(MazeGrid grid) {
+        int cells = rows * columns;
+        int[] stack = new int[0];
+        for (int cell = 0; cell < cells; cell++) {
+            if (distance[cell] != unseen) {
+                continue;
+            }
+            int row = cell / columns;
+            if (grid.isWall(row, cell - row * columns)) {
+                distance[cell] = wall;
+                continue;
+            }
+            if (stack.length == 0) {
+                // Only mazes with unreachable cells pay for the flood stack
+                stack = new int[cells];
+            }
+            int size = 0;
+            int top = 0;
+            distance[cell] = unreachable;
+            stack[top++] = cell;
+            while (top > 0) {
+                int next = stack[--top];
+                size++;
+                int nextRow = next / columns;
+                int nextColumn = next - nextRow * columns;
+                for (int[] move : BFSAlgorithm.movableCoordinates) {
+                    int neighbourRow = nextRow + move[0];
+                    int neighbourColumn = nextColumn + move[1];
+                    int neighbour = neighbourRow * columns + neighbourColumn;
+                    // The wall border keeps the neighbours inside the maze
+                    if (!grid.isWall(neighbourRow, neighbourColumn) && distance[neighbour] == unseen) {
+                        distance[neighbour] = unreachable;
+                        stack[top++] = neighbour;
+                    }
+                }
+            }
+            unreachableRegions++;
+            largestRegion = Math.max(largestRegion, size);
+        }
+        freeCells = cells;
+        for (int cell = 0; cell < cells; cell++) {
+            if (distance[cell] == wall) {
+                freeCells--;
+            }
+        }
+    }
+
+    /**
+     * Compute and report the distance field of a puzzle file, writing it in any of the formats asked for.
+     * @param args The puzzle file, followed by the optional flags --binary FILE, --csv FILE, --pgm FILE and
+     *             --ascii FILE, where "-" writes the CSV or ASCII heatmap to standard output
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: DistanceField <puzzle file> [--binary file] [--csv file|-] [--pgm file] [--ascii file|-]");
+            return;
+        }
+        Puzzle puzzle = Puzzle.load(Path.of(args[0]));
+        DistanceField field = compute(puzzle);
+        boolean toStandardOutput = false;
+        for (int i = 1; i < args.length; i++) {
+            String option = args[i];
+            String target = args[++i];
+            toStandardOutput |= target.equals("-");
+            OutputStream out = target.equals("-") ? System.out : new BufferedOutputStream(Files.newOutputStream(Path.of(target)), 1 << 16);
+            try {
+                switch (option) {
+                    case "--binary" -> field.writeBinary(out);
+                    case "--csv" -> field.writeCsv(out);
+                    case "--pgm" -> field.writePgm(out);
+                    case "--ascii" -> field.writeAscii(out);
+                    default -> throw new IllegalArgumentException("Unknown option: " + option);
+                }
+                out.flush();
+            } finally {
+                if (out != System.out) {
+                    out.close();
+                }
+            }
+        }
+        // The statistics go to standard error when standard output carries the field
+        int[] end = puzzle.getEndingPos();
+        (toStandardOutput ? System.err : System.out).println(field.toSummaryLine()
+                + " end_distance=" + field.getDistance(end[0], end[1]));
+    }
+
+    /**
+     * Write the field in the binary format described above.
+     * @param out The stream to write to, which is not closed
+     * @throws IOException If the stream cannot be written
+     */
+    public void writeBinary(OutputStream out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        buffer.asIntBuffer().put(new int[]{magic, version, rows, columns, startCell / columns, startCell % columns,
+                eccentricity, reachableCells});
+        out.write(buffer.array(), 0, 32);
+        for (int[] array : new int[][]{distance, from, stopFrom}) {
+            for (int index = 0; index < array.length; ) {
+                int count = Math.min(array.length - index, buffer.capacity() / 4);
+                buffer.clear();
+                buffer.asIntBuffer().put(array, index, count);
+                out.write(buffer.array(), 0, count * 4);
+                index += count;
+            }
+        }
+    }
+
+    /**
+     * Write the reachable cells as CSV in row-major order, one-based like the path text. The from cell and direction
+     * describe the last move to the cell, and stop is 1 for the cells a slide can stop on without an ending position there.
+     * @param out The stream to write to, which is flushed but not closed
+     * @throws IOException If the stream cannot be written
+     */
+    public void writeCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII), 1 << 16);
+        writer.write("x,y,distance,from_x,from_y,direction,stop\n");
+        StringBuilder line = new StringBuilder(64);
+        for (int cell = 0; cell < distance.length; cell++) {
+            if (distance[cell] < 0) {
+                continue;
+            }
+            line.setLength(0);
+            line.append(cell % columns + 1).append(',').append(cell / columns + 1).append(',').append(distance[cell]).append(',');
+            int previous = from[cell];
+            if (previous >= 0) {
+                line.append(previous % columns + 1).append(',').append(previous / columns + 1).append(',')
+                        .append(directionNames[directionOf(previous, cell)]);
+            } else {
+                line.append(",,");
+            }
+            line.append(',').append(cell == startCell || stopFrom[cell] >= 0 ? '1' : '0').append('\n');
+            writer.append(line);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Write the field as a binary greyscale PGM image with one pixel per cell: walls black, unreachable cells
+     * dark grey, and reachable cells from white at the starting position to grey at the eccentricity.
+     * @param out The stream to write to, which is not closed
+     * @throws IOException If the stream cannot be written
+     */
+    public void writePgm(OutputStream out) throws IOException {
+        out.write(("P5\n" + columns + " " + rows + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+        byte[] line = new byte[columns];
+        int span = Math.max(1, eccentricity);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int value = distance[row * columns + column];
+                line[column] = (byte) (value == wall ? 0 : value == unreachable ? 40 : 255 - (int) (175L * value / span));
+            }
+            out.write(line);
+        }
+    }
+
+    /**
+     * Write the field as text, one line per row: '#' for a wall, '.' for an unreachable cell, 'S' for the starting
+     * position, the distance in base 36 from '1' to 'z' for a reachable cell, and '+' when it is further than 35 moves.
+     * @param out The stream to write to, which is not closed
+     * @throws IOException If the stream cannot be written
+     */
+    public void writeAscii(OutputStream out) throws IOException {
+        byte[] line = new byte[columns + 1];
+        line[columns] = '\n';
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int cell = row * columns + column;
+                int value = distance[cell];
+                line[column] = (byte) (value == wall ? '#' : value == unreachable ? '.' : cell == startCell ? 'S'
+                        : value > 35 ? '+' : Character.forDigit(value, 36));
+            }
+            out.write(line);
+        }
+    }
+
+    /**
+     * Get the path to a cell in the format of BFSAlgorithm.getPath(), as if the cell were the ending position.
+     * @param row    The row of the cell
+     * @param column The column of the cell
+     * @return The path, or "No path was found!" if the cell cannot be reached
+     */
+    public String getPath(int row, int column) {
+        int cell = row * columns + column;
+        int steps = distance[cell];
+        if (steps < 0) {
+            return "No path was found!";
+        }
+        int[] cells = new int[steps];
+        byte[] directions = new byte[steps];
+        // The last move comes from the cell whose slide crosses this one, every move before it from a stop cell
+        int at = cell;
+        int previous = from[cell];
+        for (int index = steps - 1; index >= 0; index--) {
+            cells[index] = at;
+            directions[index] = (byte) directionOf(previous, at);
+            at = previous;
+            previous = stopFrom[at];
+        }
+        return BFSAlgorithm.formatPath(startCell, cells, directions, steps, columns);
+    }
+
+    /**
+     * Get the direction of a slide between two cells in the same row or column.
+     * @param fromCell The cell the slide starts from
+     * @param toCell   The cell the slide reaches
+     * @return The direction, one of the SlideTable direction indexes
+     */
+    private int directionOf(int fromCell, int toCell) {
+        if (fromCell / columns == toCell / columns) {
+            return toCell < fromCell ? SlideTable.LEFT : SlideTable.RIGHT;
+        }
+        return toCell < fromCell ? SlideTable.UP : SlideTable.DOWN;
+    }
+
+    /**
+     * Format the statistics as one line of space-separated key=value pairs, like SolveStats.toSummaryLine().
+     * @return The summary line
+     */
+    public String toSummaryLine() {
+        return String.format(Locale.ROOT, "distance_field file=%s rows=%d columns=%d free=%d reachable=%d stop_cells=%d"
+                        + " unreachable=%d unreachable_regions=%d largest_region=%d eccentricity=%d farthest_x=%d farthest_y=%d"
+                        + " mean_distance=%.3f cells_scanned=%d build_ms=%.3f",
+                fileName == null ? "-" : fileName.replace(' ', '_'), rows, columns, freeCells, reachableCells, stopCells,
+                freeCells - reachableCells, unreachableRegions, largestRegion, eccentricity, farthestCell % columns + 1,
+                farthestCell / columns + 1, (double) distanceSum / reachableCells, cellsScanned, buildNanos / 1e6);
+    }
+
+    @Override
+    public String toString() {
+        return toSummaryLine();
+    }
+
+    /**
+     * Get the fewest moves needed to stop on a cell if it were the ending position.
+     * @param row    The row of the cell
+     * @param column The column of the cell
+     * @return The number of moves, -1 if the cell cannot be reached, or -2 if it is a wall
+     */
+    public int getDistance(int row, int column) {
+        return distance[row * columns + column];
+    }
+
+    /**
+     * Get the number of cells that are not walls.
+     * @return The number of free cells
+     */
+    public int getFreeCells() {
+        return freeCells;
+    }
+
+    /**
+     * Get the number of cells that can be reached, the starting position included.
+     * @return The number of reachable cells
+     */
+    public int getReachableCells() {
+        return reachableCells;
+    }
+
+    /**
+     * Get the number of cells a slide can stop on without an ending position there, the starting position included.
+     * @return The number of reachable stop cells
+     */
+    public int getStopCells() {
+        return stopCells;
+    }
+
+    /**
+     * Get the largest distance of any reachable cell.
+     * @return The eccentricity of the starting position
+     */
+    public int getEccentricity() {
+        return eccentricity;
+    }
+
+    /**
+     * Get the number of regions of neighbouring free cells that cannot be reached.
+     * @return The number of unreachable regions
+     */
+    public int getUnreachableRegions() {
+        return unreachableRegions;
+    }
+
+    /**
+     * Get the number of cells in the largest unreachable region.
+     * @return The size of the largest region, 0 if every free cell can be reached
+     */
+    public int getLargestRegion() {
+        return largestRegion;
+    }
+
+    /**
+     * Get the time spent building the field and its statistics.
+     * @return The build time in nanoseconds
+     */
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+}
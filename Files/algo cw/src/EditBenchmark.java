@@ -0,0 +1,96 @@
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This program measures the latency of one wall edit with IncrementalSolver against solving the edited maze again
+ * with BFSAlgorithm, the way an editor re-solves today. Both must find the same number of moves after every edit.
+ */
+public class EditBenchmark {
+    private static final String[] puzzleFiles = {"puzzle_320.txt", "puzzle_640.txt", "puzzle_1280.txt"};
+    private static final int warmupEdits = 200;
+    private static final int measuredEdits = 1000;
+
+    /**
+     * Run the benchmark.
+     * @param args Optional folder holding the puzzle files, "algo cw/PuzzleFiles" by default
+     */
+    public static void main(String[] args) throws Exception {
+        File folder = new File(args.length > 0 ? args[0] : "algo cw/PuzzleFiles");
+        System.out.printf("%-16s %-12s %12s %12s %12s %10s%n", "File", "Solver", "Avg (ms)", "p50 (ms)", "p99 (ms)", "Speed-up");
+
+        for (String fileName : puzzleFiles) {
+            Puzzle puzzle = Puzzle.load(new File(folder, fileName).toPath());
+            IncrementalSolver incremental = new IncrementalSolver(puzzle);
+            BFSAlgorithm full = new BFSAlgorithm(BFSAlgorithm.SlideMode.WORD);
+            MazeGrid grid = incremental.getGrid();
+            int[] start = puzzle.getStartingPos();
+            int[] end = puzzle.getEndingPos();
+            Random random = new Random(42);
+
+            long[] incrementalNanos = new long[measuredEdits];
+            long[] fullNanos = new long[measuredEdits];
+            long fullSolvesBefore = 0;
+            for (int edit = 0; edit < warmupEdits + measuredEdits; edit++) {
+                if (edit == warmupEdits) {
+                    fullSolvesBefore = incremental.getFullSolves();
+                }
+                int row;
+                int column;
+                do {
+                    row = random.nextInt(grid.getRows());
+                    column = random.nextInt(grid.getColumns());
+                } while ((row == start[0] && column == start[1]) || (row == end[0] && column == end[1]));
+
+                long begin = System.nanoTime();
+                incremental.toggle(row, column);
+                long middle = System.nanoTime();
+                full.solve(grid, start, end);
+                long finish = System.nanoTime();
+
+                if (incremental.getSteps() != full.getSteps()) {
+                    throw new IllegalStateException("IncrementalSolver found " + incremental.getSteps() + " moves after edit " + edit
+                            + " of " + fileName + " instead of " + full.getSteps());
+                }
+                if (edit >= warmupEdits) {
+                    incrementalNanos[edit - warmupEdits] = middle - begin;
+                    fullNanos[edit - warmupEdits] = finish - middle;
+                }
+            }
+
+            double fullAverage = average(fullNanos);
+            report(fileName, "incremental", incrementalNanos, fullAverage);
+            report(fileName, "full", fullNanos, fullAverage);
+            System.out.println("  " + (incremental.getFullSolves() - fullSolvesBefore) + " of " + measuredEdits
+                    + " measured edits fell back to a full BFS");
+        }
+    }
+
+    /**
+     * Print the latencies of one solver.
+     * @param fileName    The name of the puzzle file
+     * @param solver      The name of the solver
+     * @param nanos       The latency of every measured edit in nanoseconds
+     * @param fullAverage The average latency of the full solve in nanoseconds
+     */
+    private static void report(String fileName, String solver, long[] nanos, double fullAverage) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double average = average(nanos);
+        System.out.printf("%-16s %-12s %12.4f %12.4f %12.4f %10.1f%n", fileName, solver, average / 1e6,
+                sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6, fullAverage / average);
+    }
+
+    /**
+     * Get the average of some latencies.
+     * @param nanos The latencies in nanoseconds
+     * @return The average in nanoseconds
+     */
+    private static double average(long[] nanos) {
+        long total = 0;
+        for (long value : nanos) {
+            total += value;
+        }
+        return (double) total / nanos.length;
+    }
+}
@@ -0,0 +1,52 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * This program precompiles puzzle files into stop-cell graph files that can be shipped next to them.
+ * Every graph is written as "name.graph" beside its puzzle, mapped back from disk and solved,
+ * and the report compares its size and search time with a BFS over the full maze.
+ */
+public class GraphCompiler {
+    private static final int warmupRuns = 3;
+    private static final int measuredRuns = 10;
+
+    /**
+     * Run the compiler.
+     * @param args A folder or glob of puzzle files, "algo cw/PuzzleFiles" by default
+     */
+    public static void main(String[] args) throws Exception {
+        List<Path> files = BatchSolver.findPuzzleFiles(args.length > 0 ? args[0] : "algo cw/PuzzleFiles");
+        System.out.printf("%-16s %10s %10s %7s %10s %12s %10s %12s%n",
+                "File", "Cells", "Nodes", "Nodes%", "Edges", "Graph (KB)", "BFS (ms)", "Graph (ms)");
+
+        BFSAlgorithm bfs = new BFSAlgorithm(BFSAlgorithm.SlideMode.TABLE);
+        for (Path file : files) {
+            Puzzle puzzle = Puzzle.load(file);
+            String name = file.getFileName().toString();
+            Path graphFile = file.resolveSibling(name.replaceFirst("\\.txt$", "") + ".graph");
+            StopGraph.build(puzzle).save(graphFile);
+            StopGraph graph = StopGraph.map(graphFile);
+
+            long bfsNanos = 0;
+            long graphNanos = 0;
+            for (int run = 0; run < warmupRuns + measuredRuns; run++) {
+                bfs.solve(puzzle.getGrid(), puzzle.getStartingPos(), puzzle.getEndingPos());
+                graph.solve();
+                if (run >= warmupRuns) {
+                    bfsNanos += bfs.getSearchTimeNanos();
+                    graphNanos += graph.getSearchTimeNanos();
+                }
+            }
+            // The mapped graph must give exactly the path of the full search
+            if (!bfs.getPath().equals(graph.getPath())) {
+                throw new IllegalStateException("The graph of " + name + " gives a different path");
+            }
+
+            long cells = (long) graph.getRows() * graph.getColumns();
+            System.out.printf("%-16s %10d %10d %6.1f%% %10d %12.1f %10.3f %12.3f%n", name, cells, graph.getNodeCount(),
+                    100.0 * graph.getNodeCount() / cells, graph.getEdgeCount(), Files.size(graphFile) / 1024.0,
+                    bfsNanos / 1e6 / measuredRuns, graphNanos / 1e6 / measuredRuns);
+        }
+    }
+}
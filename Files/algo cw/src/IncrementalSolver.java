@@ -0,0 +1,447 @@
+import java.util.Arrays;
+
+/**
+ * This class keeps the BFS tree of a puzzle up to date while single cells are toggled between wall and empty,
+ * for editors that re-solve after every change. It holds the distance from the starting position to every cell.
+ * A toggle only changes the slides along the row and the column of the cell, so only those slide table entries
+ * are swept again. The tree is then repaired locally: the subtrees hanging off slides that changed are cut loose,
+ * each of their cells takes the best distance it can get from a neighbour that is still in the tree,
+ * and any distance that went down is passed on breadth-first. If the repair grows past a limit,
+ * the tree is rebuilt with a full BFS instead.
+ * Every path returned has the fewest moves, though when several do, it may not be the one BFSAlgorithm would pick.
+ */
+public class IncrementalSolver {
+    // Distance of the cells no slide from the starting position reaches
+    private static final int unreached = Integer.MAX_VALUE;
+    // A repair touching more than this fraction of the cells is abandoned for a full BFS
+    private static final int repairLimitDivisor = 8;
+
+    private final MazeGrid grid;
+    private final SlideTable slideTable;
+    private final int rows;
+    private final int columns;
+    private final int startCell;
+    private final int endCell;
+    private final int endRow;
+    private final int endColumn;
+    private final int repairLimit;
+
+    // The BFS tree, indexed by row * columns + column
+    private final int[] distance;
+    private final int[] parent;
+    private final byte[] dirTo;
+
+    // Scratch buffers kept between toggles
+    private final long[] affected;
+    private final int[] affectedCells;
+    private final int[] queue;
+    private final int[] oldRowStops;
+    private final int[] oldColumnStops;
+    private long[] seeds = new long[64];
+
+    private int lastRepairSize;
+    private long localRepairs;
+    private long fullSolves;
+
+    /**
+     * Create a solver for a loaded puzzle and build its BFS tree. The puzzle itself is not changed by toggles.
+     * @param puzzle The loaded puzzle
+     */
+    public IncrementalSolver(Puzzle puzzle) {
+        MazeGrid source = puzzle.getGrid();
+        this.grid = MazeGrid.fromWords(source.getRows(), source.getColumns(), source.getWords().clone());
+        this.slideTable = new SlideTable(grid);
+        this.rows = grid.getRows();
+        this.columns = grid.getColumns();
+        int[] start = puzzle.getStartingPos();
+        int[] end = puzzle.getEndingPos();
+        this.startCell = start[0] * columns + start[1];
+        this.endRow = end[0];
+        this.endColumn = end[1];
+        this.endCell = endRow * columns + endColumn;
+        int cells = rows * columns;
+        this.repairLimit = Math.max(1024, cells / repairLimitDivisor);
+        this.distance = new int[cells];
+        this.parent = new int[cells];
+        this.dirTo = new byte[cells];
+        this.affected = new long[(cells + 63) >>> 6];
+        this.affectedCells = new int[cells];
+        this.queue = new int[cells];
+        this.oldRowStops = new int[2 * columns];
+        this.oldColumnStops = new int[2 * rows];
+        fullSolve();
+    }
+
+    /**
+     * Toggle a cell between wall and empty and bring the BFS tree up to date.
+     * @param row    The row of the cell
+     * @param column The column of the cell
+     * @return true if the tree was repaired locally, false if it was rebuilt with a full BFS
+     */
+    public boolean toggle(int row, int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IllegalArgumentException("Position (" + (column + 1) + ", " + (row + 1) + ") is outside the maze");
+        }
+        int toggled = row * columns + column;
+        if (toggled == startCell || toggled == endCell) {
+            throw new IllegalArgumentException("The starting and ending positions cannot be turned into walls");
+        }
+
+        // Remember the slides along the row and the column before the change
+        for (int c = 0; c < columns; c++) {
+            oldRowStops[2 * c] = stop(SlideTable.LEFT, row * columns + c);
+            oldRowStops[2 * c + 1] = stop(SlideTable.RIGHT, row * columns + c);
+        }
+        for (int r = 0; r < rows; r++) {
+            oldColumnStops[2 * r] = stop(SlideTable.UP, r * columns + column);
+            oldColumnStops[2 * r + 1] = stop(SlideTable.DOWN, r * columns + column);
+        }
+        grid.setWall(row, column, !grid.isWall(row, column));
+        slideTable.update(grid, row, column);
+
+        if (repair(row, column)) {
+            localRepairs++;
+            return true;
+        }
+        fullSolve();
+        return false;
+    }
+
+    /**
+     * Repair the BFS tree after the cell at (row, column) was toggled and the slide table updated.
+     * @param row    The row of the toggled cell
+     * @param column The column of the toggled cell
+     * @return true if the repair finished within the limit, false if the tree has to be rebuilt
+     */
+    private boolean repair(int row, int column) {
+        // Cut loose every cell whose tree edge was a slide that no longer ends there
+        int affectedCount = 0;
+        for (int c = 0; c < columns; c++) {
+            int cell = row * columns + c;
+            affectedCount = cutIfTreeEdge(cell, SlideTable.LEFT, oldRowStops[2 * c], affectedCount);
+            affectedCount = cutIfTreeEdge(cell, SlideTable.RIGHT, oldRowStops[2 * c + 1], affectedCount);
+        }
+        for (int r = 0; r < rows; r++) {
+            int cell = r * columns + column;
+            affectedCount = cutIfTreeEdge(cell, SlideTable.UP, oldColumnStops[2 * r], affectedCount);
+            affectedCount = cutIfTreeEdge(cell, SlideTable.DOWN, oldColumnStops[2 * r + 1], affectedCount);
+        }
+
+        // Their subtrees go with them, children are found through the slides as they were before the change
+        for (int index = 0; index < affectedCount; index++) {
+            int cell = affectedCells[index];
+            for (int i = 0; i < BFSAlgorithm.movableCoordinates.length; i++) {
+                int child = oldStop(i, cell, row, column);
+                if (child >= 0 && child != cell && parent[child] == cell && dirTo[child] == i && !isAffected(child)) {
+                    if (affectedCount == repairLimit) {
+                        clearAffected(affectedCount);
+                        return false;
+                    }
+                    markAffected(child);
+                    affectedCells[affectedCount++] = child;
+                }
+            }
+        }
+        for (int index = 0; index < affectedCount; index++) {
+            int cell = affectedCells[index];
+            distance[cell] = unreached;
+            parent[cell] = -1;
+        }
+
+        // Every cut cell starts from the best neighbour still in the tree
+        int seedCount = 0;
+        for (int index = 0; index < affectedCount; index++) {
+            int cell = affectedCells[index];
+            if (attachToBestPredecessor(cell)) {
+                seedCount = addSeed(seedCount, cell);
+            }
+        }
+        clearAffected(affectedCount);
+
+        // New slides along the row and the column may shorten the way to where they stop
+        for (int c = 0; c < columns; c++) {
+            seedCount = relaxSeed(row * columns + c, SlideTable.LEFT, seedCount);
+            seedCount = relaxSeed(row * columns + c, SlideTable.RIGHT, seedCount);
+        }
+        for (int r = 0; r < rows; r++) {
+            seedCount = relaxSeed(r * columns + column, SlideTable.UP, seedCount);
+            seedCount = relaxSeed(r * columns + column, SlideTable.DOWN, seedCount);
+        }
+
+        // Pass the new distances on in order: the sorted seeds merged with a FIFO queue, whose distances never go down
+        Arrays.sort(seeds, 0, seedCount);
+        int nextSeed = 0;
+        int head = 0;
+        int tail = 0;
+        int repairSize = affectedCount;
+        while (nextSeed < seedCount || head < tail) {
+            int cell;
+            if (head < tail && (nextSeed == seedCount || distance[queue[head]] <= (int) (seeds[nextSeed] >>> 32))) {
+                cell = queue[head++];
+            } else {
+                long seed = seeds[nextSeed++];
+                cell = (int) seed;
+                // A seed whose cell has been given a shorter distance since is out of date
+                if (distance[cell] != (int) (seed >>> 32)) {
+                    continue;
+                }
+            }
+            int next = distance[cell] + 1;
+            for (int i = 0; i < BFSAlgorithm.movableCoordinates.length; i++) {
+                int stop = stop(i, cell);
+                if (stop >= 0 && next < distance[stop]) {
+                    if (++repairSize > repairLimit) {
+                        return false;
+                    }
+                    distance[stop] = next;
+                    parent[stop] = cell;
+                    dirTo[stop] = (byte) i;
+                    queue[tail++] = stop;
+                }
+            }
+        }
+        lastRepairSize = repairSize;
+        return true;
+    }
+
+    /**
+     * Cut a cell loose from the tree if its tree edge is a slide that changed.
+     * @param cell          The cell the slide starts from
+     * @param direction     The direction of the slide
+     * @param oldStop       The cell where the slide stopped before the change
+     * @param affectedCount The number of cells cut loose so far
+     * @return The new number of cells cut loose
+     */
+    private int cutIfTreeEdge(int cell, int direction, int oldStop, int affectedCount) {
+        if (oldStop < 0 || oldStop == cell || stop(direction, cell) == oldStop) {
+            return affectedCount;
+        }
+        if (parent[oldStop] == cell && dirTo[oldStop] == direction && !isAffected(oldStop)) {
+            markAffected(oldStop);
+            affectedCells[affectedCount++] = oldStop;
+        }
+        return affectedCount;
+    }
+
+    /**
+     * Give a cut cell the shortest distance through a cell that slides into it.
+     * Walking back from the cell in every direction over empty cells gives exactly the cells whose slide stops on it.
+     * @param cell The cut cell
+     * @return true if a predecessor with a distance was found, otherwise false
+     */
+    private boolean attachToBestPredecessor(int cell) {
+        int row = cell / columns;
+        int column = cell - row * columns;
+        if (grid.isWall(row, column)) {
+            return false;
+        }
+        int best = unreached;
+        for (int i = 0; i < BFSAlgorithm.movableCoordinates.length; i++) {
+            int rowStep = BFSAlgorithm.movableCoordinates[i][0];
+            int columnStep = BFSAlgorithm.movableCoordinates[i][1];
+            // A slide in this direction only stops here at a wall or on the ending position
+            if (cell != endCell && !grid.isWall(row + rowStep, column + columnStep)) {
+                continue;
+            }
+            int fromRow = row - rowStep;
+            int fromColumn = column - columnStep;
+            while (!grid.isWall(fromRow, fromColumn)) {
+                int from = fromRow * columns + fromColumn;
+                if (distance[from] < best) {
+                    best = distance[from];
+                    parent[cell] = from;
+                    dirTo[cell] = (byte) i;
+                }
+                // A slide from further back would stop on the ending position first
+                if (from == endCell) {
+                    break;
+                }
+                fromRow -= rowStep;
+                fromColumn -= columnStep;
+            }
+        }
+        if (best == unreached) {
+            return false;
+        }
+        distance[cell] = best + 1;
+        return true;
+    }
+
+    /**
+     * Shorten the distance to the stop of a slide along the changed row or column, if the slide gives a shorter way.
+     * @param cell      The cell the slide starts from
+     * @param direction The direction of the slide
+     * @param seedCount The number of seeds so far
+     * @return The new number of seeds
+     */
+    private int relaxSeed(int cell, int direction, int seedCount) {
+        int stop = stop(direction, cell);
+        if (stop < 0 || distance[cell] == unreached || distance[cell] + 1 >= distance[stop]) {
+            return seedCount;
+        }
+        distance[stop] = distance[cell] + 1;
+        parent[stop] = cell;
+        dirTo[stop] = (byte) direction;
+        return addSeed(seedCount, stop);
+    }
+
+    /**
+     * Add a cell and its current distance to the seeds.
+     * @param seedCount The number of seeds so far
+     * @param cell      The cell
+     * @return The new number of seeds
+     */
+    private int addSeed(int seedCount, int cell) {
+        if (seedCount == seeds.length) {
+            seeds = Arrays.copyOf(seeds, seedCount * 2);
+        }
+        seeds[seedCount] = ((long) distance[cell] << 32) | cell;
+        return seedCount + 1;
+    }
+
+    /**
+     * Get the cell where a slide stops in the maze as it is now.
+     * @param direction The direction of the slide
+     * @param cell      The cell the slide starts from
+     * @return The cell where the slide stops, or -1 if the cell is a wall
+     */
+    private int stop(int direction, int cell) {
+        if (slideTable.stopOf(direction, cell) < 0) {
+            return -1;
+        }
+        return slideTable.stopOf(direction, cell, endRow, endColumn);
+    }
+
+    /**
+     * Get the cell where a slide stopped before the cell at (row, column) was toggled.
+     * @param direction The direction of the slide
+     * @param cell      The cell the slide starts from
+     * @param row       The row of the toggled cell
+     * @param column    The column of the toggled cell
+     * @return The cell where the slide stopped, or -1 if the cell was a wall
+     */
+    private int oldStop(int direction, int cell, int row, int column) {
+        int cellRow = cell / columns;
+        int cellColumn = cell - cellRow * columns;
+        boolean vertical = direction == SlideTable.UP || direction == SlideTable.DOWN;
+        if (vertical && cellColumn == column) {
+            return oldColumnStops[2 * cellRow + direction];
+        }
+        if (!vertical && cellRow == row) {
+            return oldRowStops[2 * cellColumn + direction - SlideTable.LEFT];
+        }
+        return stop(direction, cell);
+    }
+
+    /**
+     * Rebuild the whole BFS tree from the starting position.
+     */
+    private void fullSolve() {
+        Arrays.fill(distance, unreached);
+        int head = 0;
+        int tail = 0;
+        distance[startCell] = 0;
+        parent[startCell] = -1;
+        queue[tail++] = startCell;
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int i = 0; i < BFSAlgorithm.movableCoordinates.length; i++) {
+                int stop = stop(i, cell);
+                if (distance[stop] == unreached) {
+                    distance[stop] = distance[cell] + 1;
+                    parent[stop] = cell;
+                    dirTo[stop] = (byte) i;
+                    queue[tail++] = stop;
+                }
+            }
+        }
+        lastRepairSize = tail;
+        fullSolves++;
+    }
+
+    /**
+     * Check if a cell has been cut loose during the current repair.
+     * @param cell The cell
+     * @return true if the cell is cut loose, otherwise false
+     */
+    private boolean isAffected(int cell) {
+        return (affected[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Mark a cell as cut loose during the current repair.
+     * @param cell The cell
+     */
+    private void markAffected(int cell) {
+        affected[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * Clear the marks of the cells cut loose during the current repair.
+     * @param affectedCount The number of cells cut loose
+     */
+    private void clearAffected(int affectedCount) {
+        for (int index = 0; index < affectedCount; index++) {
+            affected[affectedCells[index] >>> 6] = 0L;
+        }
+    }
+
+    /**
+     * Get the shortest path from the starting position to the ending position in the maze as it is now.
+     * @return The path in the format "Start at: (x, y)" followed by one numbered move per line, or a message if no path was found
+     */
+    public String getPath() {
+        int steps = getSteps();
+        if (steps < 0) {
+            return "No path was found!";
+        }
+        int[] cells = new int[steps];
+        byte[] directions = new byte[steps];
+        int index = steps;
+        for (int cell = endCell; cell != startCell; cell = parent[cell]) {
+            cells[--index] = cell;
+            directions[index] = dirTo[cell];
+        }
+        return BFSAlgorithm.formatPath(startCell, cells, directions, steps, columns);
+    }
+
+    /**
+     * Get the number of moves on the shortest path in the maze as it is now.
+     * @return The number of moves, or -1 if there is no path
+     */
+    public int getSteps() {
+        return distance[endCell] == unreached ? -1 : distance[endCell];
+    }
+
+    /**
+     * Get the maze with every toggle applied so far.
+     * @return The bit-packed maze, shared with this solver
+     */
+    public MazeGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Get the number of cells the last toggle changed, or visited when the tree was rebuilt.
+     * @return The size of the last repair
+     */
+    public int getLastRepairSize() {
+        return lastRepairSize;
+    }
+
+    /**
+     * Get the number of toggles repaired locally.
+     * @return The number of local repairs
+     */
+    public long getLocalRepairs() {
+        return localRepairs;
+    }
+
+    /**
+     * Get the number of times the tree was built with a full BFS, including when the solver was created.
+     * @return The number of full solves
+     */
+    public long getFullSolves() {
+        return fullSolves;
+    }
+}
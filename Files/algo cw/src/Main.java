@@ -1,4 +1,7 @@
+import java.awt.GraphicsEnvironment;
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Scanner;
 import java.time.Duration;
 import java.time.Instant;
@@ -10,12 +13,21 @@ import java.time.Instant;
 public class Main {
     private final static Scanner input = new Scanner(System.in);
     private static Puzzle parsedInputFile;
+    // Maps larger than this many rows or columns are cut down to their top-left corner
+    private final static int mapLimit = 200;
+    private final static MazeRenderer renderer = new MazeRenderer(System.out);
 
     /**
      * Main method to run the Puzzle Mania game.
-     * @param args Command-line arguments (not used)
+     * @param args Command-line arguments, "--batch" followed by the BatchSolver arguments solves puzzles without prompts
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // Solve a whole folder of puzzles without the console menu
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchSolver.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         // Displaying welcome message and menu options
         System.out.println("-----------------------");
         System.out.println("Welcome to Puzzle Mania");
@@ -106,10 +118,6 @@ public class Main {
      * Calculating distance using the BFS algorithm.
      */
     private static void calculateTheDistance() {
-        // Record start time
-        Instant startTime = Instant.now();
-        Duration timeElapsed; // Declare timeElapsed here
-
         // Check if a puzzle is loaded
         if (parsedInputFile == null) {
             System.out.println("No puzzle loaded.");
@@ -117,34 +125,87 @@ public class Main {
         }
 
         // Get the selected puzzle, start, and end coordinates
-        int[][] selectedPuzzle = parsedInputFile.getPuzzle();
+        MazeGrid selectedPuzzle = parsedInputFile.getGrid();
         int[] mazeStartCoordinates = parsedInputFile.getStartingPos();
         int[] mazeEndCoordinates = parsedInputFile.getEndingPos();
 
-        // Create an instance of BFSAlgorithm
-        BFSAlgorithm shortPath = new BFSAlgorithm();
+        // Let the user choose how slides are followed during the search
+        int slideChoice = IntegerValidation("Choose the slide mode (1: Scan each slide, 2: Precomputed slide table, 3: Word-level wall scan)", "Invalid keyword! Please Enter 1 to scan each slide, 2 to use the precomputed slide table or 3 to use the word-level wall scan", 1, 3);
+        BFSAlgorithm.SlideMode slideMode = BFSAlgorithm.SlideMode.values()[slideChoice - 1];
+
+        // Create an instance of BFSAlgorithm that records where the time goes
+        BFSAlgorithm shortPath = new BFSAlgorithm(slideMode);
+        SolveStats stats = new SolveStats();
+        stats.recordPuzzle(parsedInputFile);
+        shortPath.setStats(stats);
 
         // Finding the shortest path
         System.out.println("\nShortest PATH: \n");
         System.out.println("File name: " + parsedInputFile.getFileName());
-        System.out.println("Total number of lines: " + parsedInputFile.getLines().size());
+        System.out.println("Total number of lines: " + selectedPuzzle.getRows());
+
+        // Record start time, only the path calculation is timed and not the prompts or console output
+        Instant startTime = Instant.now();
 
-        // Calculate the shortest path
-        String path = shortPath.shortestDistance(selectedPuzzle, mazeStartCoordinates, mazeEndCoordinates);
+        // Calculate the shortest path, the path text is written straight from the solver afterwards
+        shortPath.solve(parsedInputFile);
 
-        // Record end time after the path is calculated and printed
+        // Record end time after the path is calculated
         Instant endTime = Instant.now();
         // Calculate time elapsed
-        timeElapsed = Duration.between(startTime, endTime);
+        Duration timeElapsed = Duration.between(startTime, endTime);
 
         // Print the path
-        System.out.print(path);
+        try {
+            renderer.writePath(shortPath);
+            renderer.flush();
+        } catch (IOException e) {
+            System.out.println(e);
+        }
+
+        // Say which ending position was reached when the puzzle has several
+        int[] reached = shortPath.getReachedTarget();
+        if (parsedInputFile.getTargetCount() > 1 && reached != null) {
+            System.out.println("Nearest of " + parsedInputFile.getTargetCount() + " ending positions: (" + (reached[1] + 1) + ", " + (reached[0] + 1) + ")");
+            mazeEndCoordinates = reached;
+        }
 
         // Print message indicating the process is done
         System.out.println("\nDone! ");
 
         // Print time taken to calculate the path
         System.out.println("Time Taken: " + timeElapsed.toMillis() + " ms");
+
+        // Print the slide table build time apart from the search time
+        if (slideMode != BFSAlgorithm.SlideMode.SCAN) {
+            System.out.println("Slide " + (slideMode == BFSAlgorithm.SlideMode.TABLE ? "table" : "scanner") + " build time: " + Duration.ofNanos(shortPath.getBuildTimeNanos()).toMillis() + " ms");
+        }
+        System.out.println("Search time: " + Duration.ofNanos(shortPath.getSearchTimeNanos()).toMillis() + " ms");
+
+        // Print every counter on one line that scripts can pick up
+        System.out.println(stats.toSummaryLine());
+
+        // Offer to draw the path on the map
+        if (shortPath.getSteps() >= 0) {
+            while (true) {
+                System.out.print("\nDo you wish to see the path on the maze map? (Y/N): ");
+                String showPath = input.next().toUpperCase();
+                if (showPath.equals("Y")) {
+                    try {
+                        renderer.setLimits(mapLimit, mapLimit, Integer.MAX_VALUE);
+                        renderer.writeMap(selectedPuzzle, shortPath, mazeStartCoordinates, mazeEndCoordinates);
+                        renderer.flush();
+                    } catch (IOException e) {
+                        System.out.println(e);
+                    }
+                    break;
+                } else if (showPath.equals("N")) {
+                    break;
+                } else {
+                    System.out.println("Invalid choice! Please choose 'Y' or 'N' only ");
+                }
+            }
+        }
     }
 
 
@@ -206,12 +267,18 @@ public class Main {
      * @return true if there was an error reading the file, otherwise false.
      */
     private static boolean selectFile() {
-        // Prompt the user to choose a puzzle from the dialog box
-        System.out.println("Choose the puzzle from the Dialog box.");
         try {
             Puzzle file = new Puzzle();
-            file.readFile(); // Read the selected file
-            file.loadLines(); // Load lines from the file
+            if (GraphicsEnvironment.isHeadless()) {
+                // There is no display to open the dialog box on, so ask for the path instead
+                System.out.print("\nEnter the path of the puzzle file: ");
+                input.nextLine();
+                file.readFile(new File(input.nextLine().trim())); // Read the given file
+            } else {
+                // Prompt the user to choose a puzzle from the dialog box
+                System.out.println("Choose the puzzle from the Dialog box.");
+                file.readFile(); // Read the selected file
+            }
             file.loadPuzzles(); // Load puzzles from the file
             // Check if the file is successfully read
             if (!file.isFileRead()) {
@@ -259,29 +326,22 @@ public class Main {
     private static void printMazesAndPuzzles() {
         // Check if parsedInputFile is not null
         if (parsedInputFile != null) {
-            int[][] puzzle = parsedInputFile.getPuzzle();
+            MazeGrid puzzle = parsedInputFile.getGrid();
             // Check if puzzle is not null
             if (puzzle != null) {
                 System.out.println("___________________");
                 System.out.println("     Maze Map");
                 System.out.println("___________________");
-                // Print the maze
-                for (int[] row : puzzle) {
-                    for (int cell : row) {
-                        // Print empty cell
-                        if (cell == 0) {
-                            System.out.print(".");
-                        }
-                        // Print obstacle
-                        else if (cell == 1) {
-                            System.out.print("0");
-                        }
-                        // Print other characters
-                        else {
-                            System.out.print((char) cell);
-                        }
+                // Print the maze through the renderer's buffer, large mazes as a summary and their top-left corner
+                try {
+                    renderer.setLimits(mapLimit, mapLimit, Integer.MAX_VALUE);
+                    if (puzzle.getRows() > mapLimit || puzzle.getColumns() > mapLimit) {
+                        renderer.writeSummary(puzzle);
                     }
-                    System.out.println();
+                    renderer.writeMap(puzzle);
+                    renderer.flush();
+                } catch (IOException e) {
+                    System.out.println(e);
                 }
             } else {
                 // Print message if no puzzles found
@@ -0,0 +1,28 @@
+import java.nio.file.Path;
+
+/**
+ * This program converts puzzles between the text format and the binary maze format.
+ * A .maze input is written out as text, any other input is parsed as text and written out as a binary maze.
+ */
+public class MazeConverter {
+
+    /**
+     * Run the converter.
+     * @param args The input file followed by the output file
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.out.println("Usage: MazeConverter <input.txt|input.maze> <output>");
+            return;
+        }
+        Path input = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        Puzzle puzzle = Puzzle.load(input);
+        if (input.getFileName().toString().endsWith(MazeFile.extension)) {
+            MazeFile.writeText(puzzle, output);
+        } else {
+            MazeFile.write(puzzle, output);
+        }
+        System.out.println("Converted " + input + " (" + puzzle.getGrid().getRows() + " x " + puzzle.getGrid().getColumns() + ") to " + output);
+    }
+}
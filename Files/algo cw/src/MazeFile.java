@@ -0,0 +1,439 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This class reads and writes the binary maze format and keeps a cache of binary copies of text puzzles.
+ * A binary maze is a header of eight big-endian ints (magic, version, rows, columns, start row, start column,
+ * end row and end column) followed by the words of the MazeGrid exactly as they are held in memory, border included,
+ * so loading one is a single bulk copy from a memory-mapped file with no per-cell work.
+ * A puzzle with more than one ending position is written as version 2, where the words are followed by the number
+ * of ending positions and the row and column of each, in row-major order; the header holds the first of them.
+ * The cache is a folder of binary mazes named after a hash of the text they were parsed from,
+ * so an edited text file misses the cache and is parsed again.
+ */
+public class MazeFile {
+    public static final String extension = ".maze";
+
+    // "SLMZ" followed by the format version
+    private static final int magic = 0x534C4D5A;
+    private static final int version = 1;
+    // Version of files with more than one ending position
+    private static final int multiTargetVersion = 2;
+    private static final int headerBytes = 32;
+
+    /**
+     * Write a loaded puzzle as a binary maze.
+     * @param puzzle The loaded puzzle
+     * @param path   The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(Puzzle puzzle, Path path) throws IOException {
+        MazeGrid grid = puzzle.getGrid();
+        int[] start = puzzle.getStartingPos();
+        int[] end = puzzle.getEndingPos();
+        int[] targets = puzzle.getTargetCells();
+        long[] words = grid.getWords();
+        ByteBuffer header = ByteBuffer.allocate(headerBytes);
+        header.asIntBuffer().put(new int[]{magic, targets.length > 1 ? multiTargetVersion : version, grid.getRows(),
+                grid.getColumns(), start[0], start[1], end[0], end[1]});
+        // Written through a buffer rather than a mapping, so the file can be moved straight after on every platform
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            int word = 0;
+            while (word < words.length) {
+                buffer.clear();
+                int count = Math.min(words.length - word, buffer.capacity() / 8);
+                buffer.asLongBuffer().put(words, word, count);
+                buffer.limit(count * 8);
+                writeFully(channel, buffer);
+                word += count;
+            }
+            if (targets.length > 1) {
+                writeTargets(channel, buffer, targets, grid.getColumns());
+            }
+        }
+    }
+
+    /**
+     * Write the trailer of a version 2 binary maze: the number of ending positions and the row and column of each.
+     * @param channel The binary maze file, positioned after the grid words
+     * @param buffer  A buffer of at least 8 bytes to write through
+     * @param targets The row-major cells of the ending positions in ascending order
+     * @param columns The number of columns in the maze
+     * @throws IOException If the file cannot be written
+     */
+    private static void writeTargets(FileChannel channel, ByteBuffer buffer, int[] targets, int columns) throws IOException {
+        buffer.clear();
+        buffer.putInt(targets.length);
+        for (int target : targets) {
+            if (buffer.remaining() < 8) {
+                writeFully(channel, buffer.flip());
+                buffer.clear();
+            }
+            buffer.putInt(target / columns).putInt(target % columns);
+        }
+        writeFully(channel, buffer.flip());
+    }
+
+    /**
+     * Write the whole of a buffer to a channel.
+     * @param channel The channel to write to
+     * @param buffer  The buffer to write
+     * @throws IOException If the channel cannot be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Read a binary maze.
+     * @param path The binary maze file
+     * @return The loaded puzzle
+     * @throws IOException If the file cannot be read or is not a valid binary maze
+     */
+    public static Puzzle read(Path path) throws IOException {
+        return read(path, path);
+    }
+
+    /**
+     * Read a binary maze, reporting it under the name of another file.
+     * @param path   The binary maze file
+     * @param source The file the puzzle is named after
+     * @return The loaded puzzle
+     * @throws IOException If the file cannot be read or is not a valid binary maze
+     */
+    private static Puzzle read(Path path, Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int[] header = readHeader(path, channel);
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + " is larger than one mapping can hold");
+            }
+            int rows = header[0];
+            int columns = header[1];
+            int wordBytes = (int) (8 * ((rows + 2L) * ((columns + 2L + 63) >>> 6)));
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, headerBytes, size - headerBytes);
+            long[] grid = new long[wordBytes / 8];
+            buffer.asLongBuffer().get(grid);
+            MazeGrid maze = MazeGrid.fromWords(rows, columns, grid);
+            int[] start = {header[2], header[3]};
+            int[] end = {header[4], header[5]};
+            checkPosition(path, maze, start, "starting");
+            checkPosition(path, maze, end, "ending");
+            if (header[6] == 1) {
+                return Puzzle.of(source.toFile(), maze, start, end);
+            }
+
+            // The ending positions follow the words and their count, in row-major order starting with the one in the header
+            int[] targets = new int[header[6]];
+            IntBuffer trailer = buffer.position(wordBytes + 4).asIntBuffer();
+            for (int i = 0; i < targets.length; i++) {
+                int[] target = {trailer.get(), trailer.get()};
+                checkPosition(path, maze, target, "ending");
+                targets[i] = target[0] * columns + target[1];
+                if (i == 0 ? !Arrays.equals(target, end) : targets[i] <= targets[i - 1]) {
+                    throw new IOException(path + " has ending positions out of order");
+                }
+            }
+            return Puzzle.withTargets(source.toFile(), maze, start, targets);
+        }
+    }
+
+    /**
+     * Read and check the header of a binary maze, including that the file holds exactly the words of its grid
+     * and, for version 2, the ending positions after them.
+     * The grid words start at byte getHeaderBytes() of the file.
+     * @param path    The binary maze file, for error messages
+     * @param channel The open file
+     * @return The rows, columns, start row, start column, end row, end column and number of ending positions
+     * @throws IOException If the file cannot be read or is not a valid binary maze
+     */
+    static int[] readHeader(Path path, FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < headerBytes) {
+            throw new IOException(path + " is too short to be a binary maze");
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(headerBytes);
+        while (bytes.hasRemaining()) {
+            channel.read(bytes, bytes.position());
+        }
+        IntBuffer header = bytes.flip().asIntBuffer();
+        if (header.get(0) != magic) {
+            throw new IOException(path + " is not a binary maze");
+        }
+        if (header.get(1) != version && header.get(1) != multiTargetVersion) {
+            throw new IOException(path + " has binary maze version " + header.get(1) + ", expected " + version + " or " + multiTargetVersion);
+        }
+        int rows = header.get(2);
+        int columns = header.get(3);
+        if (rows <= 0 || columns <= 0) {
+            throw new IOException(path + " has an invalid size " + rows + " x " + columns);
+        }
+        long words = (rows + 2L) * ((columns + 2L + 63) >>> 6);
+        long trailer = headerBytes + 8 * words;
+        int targets = 1;
+        if (header.get(1) == multiTargetVersion && size >= trailer + 4) {
+            ByteBuffer count = ByteBuffer.allocate(4);
+            while (count.hasRemaining()) {
+                channel.read(count, trailer + count.position());
+            }
+            targets = count.flip().getInt();
+            trailer += 4 + 8L * targets;
+        }
+        if (size != trailer || targets < 1) {
+            throw new IOException(path + " is truncated or corrupt");
+        }
+        return new int[]{rows, columns, header.get(4), header.get(5), header.get(6), header.get(7), targets};
+    }
+
+    /**
+     * Get the size of the header of a binary maze.
+     * @return The header size in bytes
+     */
+    static int getHeaderBytes() {
+        return headerBytes;
+    }
+
+    /**
+     * Check that a position read from a binary maze is an empty cell inside it.
+     * @param path     The binary maze file
+     * @param grid     The maze
+     * @param position The position as {row, column}
+     * @param name     The name of the position for the error message
+     * @throws IOException If the position is outside the maze or on a wall
+     */
+    private static void checkPosition(Path path, MazeGrid grid, int[] position, String name) throws IOException {
+        if (position[0] < 0 || position[0] >= grid.getRows() || position[1] < 0 || position[1] >= grid.getColumns()
+                || grid.isWall(position[0], position[1])) {
+            throw new IOException(path + " has an invalid " + name + " position (" + (position[1] + 1) + ", " + (position[0] + 1) + ")");
+        }
+    }
+
+    /**
+     * Convert a text puzzle to a binary maze one row at a time, without loading the whole grid,
+     * so puzzles larger than the heap can be converted. The text is checked by the same reader Puzzle parses it with,
+     * and every row is written to the file as soon as it is read.
+     * @param textFile The text puzzle file
+     * @param path     The binary maze file to write
+     * @throws IOException If the text file cannot be read or is not a valid puzzle, or the binary file cannot be written
+     */
+    public static void convert(Path textFile, Path path) throws IOException {
+        try (FileChannel in = FileChannel.open(textFile, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.WRITE)) {
+            PuzzleTextReader reader = new PuzzleTextReader(in.size(), () -> in.position(0));
+            long rowCount = reader.getRowCount();
+            if (rowCount > Integer.MAX_VALUE - 2) {
+                throw new IOException("The puzzle has too many rows: " + rowCount);
+            }
+            int rows = (int) rowCount;
+            int columnSize = reader.getColumns();
+            int stride = (columnSize + 2 + 63) >>> 6;
+
+            // The header is written last, once the positions are known
+            ByteBuffer output = ByteBuffer.allocate(Math.max(1 << 16, stride * 8));
+            out.position(headerBytes);
+            long[] border = new long[stride];
+            Arrays.fill(border, -1L);
+            writeRow(out, output, border);
+            reader.read((row, words) -> writeRow(out, output, words));
+            writeRow(out, output, border);
+            output.flip();
+            writeFully(out, output);
+            int[] targetCells = reader.getTargetCells();
+            if (targetCells.length > 1) {
+                writeTargets(out, output, targetCells, columnSize);
+            }
+
+            int[] start = reader.getStart();
+            int[] end = reader.getEnd();
+            ByteBuffer header = ByteBuffer.allocate(headerBytes);
+            header.asIntBuffer().put(new int[]{magic, targetCells.length > 1 ? multiTargetVersion : version, rows, columnSize,
+                    start[0], start[1], end[0], end[1]});
+            out.position(0);
+            writeFully(out, header);
+        }
+    }
+
+    /**
+     * Add the words of one grid row to the output buffer, writing the buffer out first when it is full.
+     * @param out    The binary maze file
+     * @param output The output buffer, left in write mode
+     * @param words  The words of the row
+     * @throws IOException If the file cannot be written
+     */
+    private static void writeRow(FileChannel out, ByteBuffer output, long[] words) throws IOException {
+        if (output.remaining() < words.length * 8) {
+            output.flip();
+            writeFully(out, output);
+            output.clear();
+        }
+        for (long word : words) {
+            output.putLong(word);
+        }
+    }
+
+    /**
+     * Write a loaded puzzle in the text format, one line per row ending with a line feed.
+     * @param puzzle The loaded puzzle
+     * @param path   The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public static void writeText(Puzzle puzzle, Path path) throws IOException {
+        MazeGrid grid = puzzle.getGrid();
+        int[] start = puzzle.getStartingPos();
+        int[] targets = puzzle.getTargetCells();
+        int columns = grid.getColumns();
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            char[] line = new char[columns];
+            int target = 0;
+            for (int row = 0; row < grid.getRows(); row++) {
+                for (int column = 0; column < line.length; column++) {
+                    line[column] = grid.isWall(row, column) ? '0' : '.';
+                }
+                if (start[0] == row) {
+                    line[start[1]] = 'S';
+                }
+                // The ending positions are in row-major order
+                while (target < targets.length && targets[target] / columns == row) {
+                    line[targets[target++] % columns] = 'F';
+                }
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Load a text puzzle through the cache. On a hit the binary copy is read instead of parsing the text,
+     * on a miss the text is parsed and a binary copy is added to the cache.
+     * @param textFile    The text puzzle file
+     * @param cacheFolder The folder holding the binary copies, created if missing
+     * @return The loaded puzzle
+     * @throws IOException If the text file cannot be read or is not a valid puzzle
+     */
+    public static Puzzle loadCached(Path textFile, Path cacheFolder) throws IOException {
+        Path cached = cacheFolder.resolve(String.format("%016x", hash(textFile)) + extension);
+        if (Files.isRegularFile(cached)) {
+            try {
+                return read(cached, textFile);
+            } catch (IOException e) {
+                // A damaged or outdated copy is replaced below
+            }
+        }
+
+        Puzzle puzzle = Puzzle.load(textFile);
+        // Write to a temporary file first, so other loads never see a half-written copy
+        Files.createDirectories(cacheFolder);
+        Path temporary = Files.createTempFile(cacheFolder, "maze", ".tmp");
+        try {
+            write(puzzle, temporary);
+            Files.move(temporary, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return puzzle;
+    }
+
+    /**
+     * Hash the contents of a file eight bytes at a time.
+     * This is not a cryptographic hash, it only has to tell apart the versions of a puzzle file.
+     * @param file The file to hash
+     * @return The 64-bit hash
+     * @throws IOException If the file cannot be read
+     */
+    public static long hash(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long hash = size * 0x9E3779B97F4A7C15L;
+            for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+                hash = mixAll(hash, channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Integer.MAX_VALUE, size - position)));
+            }
+            return finish(hash);
+        }
+    }
+
+    /**
+     * Hash bytes held in memory, giving the same hash as a file with the same contents.
+     * @param bytes The bytes to hash
+     * @return The 64-bit hash
+     */
+    public static long hash(byte[] bytes) {
+        return finish(mixAll(bytes.length * 0x9E3779B97F4A7C15L, ByteBuffer.wrap(bytes)));
+    }
+
+    /**
+     * Hash the board of a loaded puzzle: its size, the words of its grid, its starting position and its ending positions.
+     * Unlike the hash of a file this does not depend on how the text was laid out, so copies of a puzzle with other
+     * line endings, or its binary copy, hash the same, and the grid is folded in 64 cells at a time.
+     * @param puzzle The loaded puzzle
+     * @return The 64-bit hash
+     */
+    public static long hash(Puzzle puzzle) {
+        MazeGrid grid = puzzle.getGrid();
+        int[] start = puzzle.getStartingPos();
+        int[] targets = puzzle.getTargetCells();
+        long hash = mix(((long) grid.getRows() << 32 | grid.getColumns()) * 0x9E3779B97F4A7C15L,
+                (long) start[0] << 32 | start[1]);
+        for (long word : grid.getWords()) {
+            hash = mix(hash, word);
+        }
+        hash = mix(hash, targets.length);
+        for (int cell : targets) {
+            hash = mix(hash, cell);
+        }
+        return finish(hash);
+    }
+
+    /**
+     * Fold the remaining bytes of a buffer into a hash, eight bytes at a time and then the tail.
+     * @param hash   The hash so far
+     * @param buffer The bytes
+     * @return The new hash
+     */
+    private static long mixAll(long hash, ByteBuffer buffer) {
+        while (buffer.remaining() >= 8) {
+            hash = mix(hash, buffer.getLong());
+        }
+        long tail = 0;
+        while (buffer.hasRemaining()) {
+            tail = tail << 8 | (buffer.get() & 0xff);
+        }
+        return mix(hash, tail);
+    }
+
+    /**
+     * Finish a hash with an avalanche, so every input bit affects every output bit.
+     * @param hash The hash so far
+     * @return The final hash
+     */
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Fold eight bytes into a hash.
+     * @param hash  The hash so far
+     * @param value The next eight bytes
+     * @return The new hash
+     */
+    private static long mix(long hash, long value) {
+        return Long.rotateLeft(hash ^ value * 0xC2B2AE3D27D4EB4FL, 31) * 0x9E3779B97F4A7C15L;
+    }
+}
@@ -0,0 +1,396 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class generates puzzle files in the text format from a seed, so the same arguments always give the same file.
+ * Rows are written to disk one at a time as they are generated and the whole grid is never held in memory,
+ * which allows boards up to 20000 x 20000 and beyond. The layouts are:
+ * RANDOM, OPEN and CORRIDORS for general boards, SOLVABLE with a path carved through random walls,
+ * UNSOLVABLE with the ending position walled in, and WORST_CASE, a serpentine staircase where every move
+ * advances one cell, so the shortest path has about rows * columns / 3 moves.
+ */
+public class MazeGenerator {
+
+    /**
+     * The kinds of board the generator can write.
+     */
+    public enum Layout {
+        // Every cell is a wall with the wall density
+        RANDOM,
+        // Like RANDOM, but with few walls by default
+        OPEN,
+        // A lattice of corridors between pillars, with the wall density closing corridor cells
+        CORRIDORS,
+        // Random walls with a staircase path from the top-left to the bottom-right corner that is always kept open
+        SOLVABLE,
+        // Random walls with the four neighbours of the ending position always walls
+        UNSOLVABLE,
+        // Bands of stairs joined end to end, one move per cell
+        WORST_CASE
+    }
+
+    // Rows of the same layout are written through a buffer this size
+    private static final int bufferSize = 1 << 20;
+
+    private final Layout layout;
+    private final int rows;
+    private final int columns;
+    private final double density;
+    private final long seed;
+
+    /**
+     * Create a generator.
+     * @param layout  The kind of board
+     * @param rows    The number of rows
+     * @param columns The number of columns
+     * @param density The chance of a cell being a wall, from 0 to 1, ignored by WORST_CASE
+     * @param seed    The seed of the random walls and positions
+     */
+    public MazeGenerator(Layout layout, int rows, int columns, double density, long seed) {
+        if (rows < 1 || columns < 1 || (long) rows * columns < 2) {
+            throw new IllegalArgumentException("A puzzle needs at least two cells, got " + rows + " x " + columns);
+        }
+        if (layout == Layout.WORST_CASE && (rows < 2 || columns < 4)) {
+            throw new IllegalArgumentException("The worst case layout needs at least 2 rows and 4 columns");
+        }
+        if (layout == Layout.UNSOLVABLE && (long) rows * columns < 4) {
+            throw new IllegalArgumentException("The unsolvable layout needs at least 4 cells");
+        }
+        if (density < 0 || density > 1) {
+            throw new IllegalArgumentException("The wall density must be between 0 and 1, got " + density);
+        }
+        this.layout = layout;
+        this.rows = rows;
+        this.columns = columns;
+        this.density = density;
+        this.seed = seed;
+    }
+
+    /**
+     * Get the wall density a layout uses when none is given.
+     * @param layout The kind of board
+     * @return The default wall density
+     */
+    public static double defaultDensity(Layout layout) {
+        return switch (layout) {
+            case OPEN -> 0.05;
+            case CORRIDORS -> 0.3;
+            default -> 0.25;
+        };
+    }
+
+    /**
+     * Run the generator.
+     * @param args The output file, or --corpus FOLDER to write every layout, followed by the optional flags
+     *             --layout NAME, --size N, --rows N, --columns N, --density D, --seed N and, for a corpus, --sizes N,N,...
+     */
+    public static void main(String[] args) throws Exception {
+        Layout layout = Layout.RANDOM;
+        int rows = 1000;
+        int columns = 1000;
+        Double density = null;
+        long seed = 42;
+        String output = null;
+        String corpus = null;
+        String sizes = "2560,5120";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--layout" -> layout = Layout.valueOf(args[++i].toUpperCase());
+                case "--size" -> rows = columns = Integer.parseInt(args[++i]);
+                case "--rows" -> rows = Integer.parseInt(args[++i]);
+                case "--columns" -> columns = Integer.parseInt(args[++i]);
+                case "--density" -> density = Double.parseDouble(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--corpus" -> corpus = args[++i];
+                case "--sizes" -> sizes = args[++i];
+                default -> output = args[i];
+            }
+        }
+        if (output == null && corpus == null) {
+            System.out.println("Usage: MazeGenerator <output.txt> [--layout random|open|corridors|solvable|unsolvable|worst_case]"
+                    + " [--size N | --rows N --columns N] [--density D] [--seed N]");
+            System.out.println("       MazeGenerator --corpus <folder> [--sizes N,N,...] [--seed N]");
+            return;
+        }
+
+        if (corpus != null) {
+            // One file per layout and size, named so BatchSolver and the benchmarks can pick them up by glob
+            Path folder = Path.of(corpus);
+            Files.createDirectories(folder);
+            for (String size : sizes.split(",")) {
+                int n = Integer.parseInt(size.trim());
+                for (Layout each : Layout.values()) {
+                    Path file = folder.resolve(each.name().toLowerCase() + "_" + n + ".txt");
+                    generate(new MazeGenerator(each, n, n, density != null ? density : defaultDensity(each), seed), file);
+                }
+            }
+        } else {
+            generate(new MazeGenerator(layout, rows, columns, density != null ? density : defaultDensity(layout), seed), Path.of(output));
+        }
+    }
+
+    /**
+     * Write one file and report how long it took.
+     * @param generator The generator
+     * @param file      The file to write
+     * @throws IOException If the file cannot be written
+     */
+    private static void generate(MazeGenerator generator, Path file) throws IOException {
+        long start = System.nanoTime();
+        generator.write(file);
+        System.out.printf("%-32s %6d x %-6d %10.1f MB %10.1f ms%n", file.getFileName(), generator.rows, generator.columns,
+                Files.size(file) / 1e6, (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * Write the board to a file.
+     * @param file The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), bufferSize)) {
+            write(out);
+        }
+    }
+
+    /**
+     * Write the board to a stream, one row at a time with a line feed after every row.
+     * @param out The stream to write to
+     * @throws IOException If the stream cannot be written
+     */
+    public void write(OutputStream out) throws IOException {
+        Random random = new Random(seed);
+        byte[] line = new byte[columns + 1];
+        line[columns] = '\n';
+
+        if (layout == Layout.WORST_CASE) {
+            for (int row = 0; row < rows; row++) {
+                worstCaseRow(row, line);
+                out.write(line);
+            }
+            return;
+        }
+
+        // Pick the positions first, every layout but WORST_CASE keeps them on empty cells
+        long cells = (long) rows * columns;
+        long start;
+        long end;
+        if (layout == Layout.SOLVABLE) {
+            start = 0;
+            end = cells - 1;
+        } else {
+            start = randomCell(random, cells);
+            end = randomCell(random, cells);
+            // The unsolvable layout walls in the ending position, so the start must not be next to it
+            while (end == start || (layout == Layout.UNSOLVABLE && isNeighbour(start, end))) {
+                end = randomCell(random, cells);
+            }
+        }
+        Staircase staircase = layout == Layout.SOLVABLE ? new Staircase(random) : null;
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                line[column] = isRandomWall(random, row, column) ? (byte) '0' : (byte) '.';
+            }
+            if (staircase != null) {
+                staircase.apply(row, line);
+            }
+            if (layout == Layout.UNSOLVABLE) {
+                // Nothing can slide into a cell whose four neighbours are walls
+                int endRow = (int) (end / columns);
+                int endColumn = (int) (end % columns);
+                if (Math.abs(row - endRow) == 1) {
+                    line[endColumn] = '0';
+                } else if (row == endRow) {
+                    if (endColumn > 0) {
+                        line[endColumn - 1] = '0';
+                    }
+                    if (endColumn < columns - 1) {
+                        line[endColumn + 1] = '0';
+                    }
+                }
+            }
+            if (start / columns == row) {
+                line[(int) (start % columns)] = 'S';
+            }
+            if (end / columns == row) {
+                line[(int) (end % columns)] = 'F';
+            }
+            out.write(line);
+        }
+    }
+
+    /**
+     * Decide whether a cell is a wall before any forced cells are applied.
+     * @param random The random source, used in row-major order
+     * @param row    The row of the cell
+     * @param column The column of the cell
+     * @return true if the cell is a wall, otherwise false
+     */
+    private boolean isRandomWall(Random random, int row, int column) {
+        if (layout == Layout.CORRIDORS) {
+            // Pillars on odd rows and columns, corridor cells between them closed with the wall density
+            boolean oddRow = (row & 1) == 1;
+            boolean oddColumn = (column & 1) == 1;
+            if (oddRow && oddColumn) {
+                return true;
+            }
+            if (!oddRow && !oddColumn) {
+                return false;
+            }
+        }
+        return random.nextDouble() < density;
+    }
+
+    /**
+     * Pick a random cell, on a corridor crossing for the CORRIDORS layout so it is never a pillar.
+     * @param random The random source
+     * @param cells  The number of cells
+     * @return The row-major index of the cell
+     */
+    private long randomCell(Random random, long cells) {
+        if (layout != Layout.CORRIDORS) {
+            return (long) (random.nextDouble() * cells);
+        }
+        int row = 2 * random.nextInt((rows + 1) / 2);
+        int column = 2 * random.nextInt((columns + 1) / 2);
+        return (long) row * columns + column;
+    }
+
+    /**
+     * Check if two cells are next to each other.
+     * @param first  The row-major index of the first cell
+     * @param second The row-major index of the second cell
+     * @return true if the cells share a side, otherwise false
+     */
+    private boolean isNeighbour(long first, long second) {
+        long rowDistance = Math.abs(first / columns - second / columns);
+        long columnDistance = Math.abs(first % columns - second % columns);
+        return rowDistance + columnDistance == 1;
+    }
+
+    /**
+     * Fill a row of the WORST_CASE layout.
+     * The rows form bands of three: two stair rows and a wall row. In the upper stair row every fourth cell from
+     * the second is a wall, in the lower one every fourth cell from the fourth, so going along a band means
+     * moving up and down one row at a time and every move advances one cell. Bands run left to right and right
+     * to left in turn, and the wall row under a band has a gap at the band's far end leading into the next band.
+     * @param row  The row to fill
+     * @param line The row buffer
+     */
+    private void worstCaseRow(int row, byte[] line) {
+        int band = row / 3;
+        int bands = rows / 3 + (rows % 3 == 2 ? 1 : 0);
+        boolean lastBand = band == bands - 1;
+        boolean reversed = (band & 1) == 1;
+        int inBand = row % 3;
+        Arrays.fill(line, 0, columns, (byte) '0');
+        if (band >= bands) {
+            // Rows left over after the last band stay walls
+            return;
+        }
+
+        if (inBand == 2) {
+            // The wall row has a gap where the band ends, unless there is no band below
+            if (!lastBand) {
+                line[reversed ? 0 : columns - 1] = '.';
+            }
+            return;
+        }
+        for (int x = 0; x < columns; x++) {
+            // The last two cells of a band are open so a slide can reach the gap
+            boolean wall = x < columns - 2 && (inBand == 0 ? x % 4 == 1 : x % 4 == 3);
+            line[reversed ? columns - 1 - x : x] = wall ? (byte) '0' : (byte) '.';
+        }
+        if (band == 0 && inBand == 1) {
+            line[0] = 'S';
+        }
+        if (lastBand && inBand == 1) {
+            line[reversed ? 0 : columns - 1] = 'F';
+        }
+    }
+
+    /**
+     * A staircase of slides from the top-left corner to the bottom-right corner, alternating right and down,
+     * with a wall just after every slide so it stops where the next one starts. Only the corners of the staircase
+     * are kept, one horizontal slide and at most two walls per row, so it takes memory in proportion to the rows.
+     */
+    private class Staircase {
+        // Columns of the horizontal slide on every row, -1 when the row has none
+        private final int[] slideFrom;
+        private final int[] slideTo;
+        // Column of the vertical slide through every row, -1 when the row has none
+        private final int[] downColumn;
+        // Columns of the walls that end the slides on every row, -1 when there is none
+        private final int[] stopAfterRight;
+        private final int[] stopBelowDown;
+
+        /**
+         * Lay out the staircase with random slide lengths.
+         * @param random The random source
+         */
+        Staircase(Random random) {
+            slideFrom = new int[rows];
+            slideTo = new int[rows];
+            downColumn = new int[rows];
+            stopAfterRight = new int[rows];
+            stopBelowDown = new int[rows];
+            Arrays.fill(slideFrom, -1);
+            Arrays.fill(slideTo, -1);
+            Arrays.fill(downColumn, -1);
+            Arrays.fill(stopAfterRight, -1);
+            Arrays.fill(stopBelowDown, -1);
+
+            // Slides cover up to an eighth of the board, so there are always several steps
+            int maxRight = Math.max(1, columns / 8);
+            int maxDown = Math.max(1, rows / 8);
+            int row = 0;
+            int column = 0;
+            while (row < rows - 1 || column < columns - 1) {
+                int right = column == columns - 1 ? column : (row == rows - 1 ? columns - 1 : Math.min(columns - 1, column + 1 + random.nextInt(maxRight)));
+                slideFrom[row] = column;
+                slideTo[row] = right;
+                if (right < columns - 1) {
+                    stopAfterRight[row] = right + 1;
+                }
+                column = right;
+                if (row == rows - 1) {
+                    break;
+                }
+                int down = column == columns - 1 ? rows - 1 : Math.min(rows - 1, row + 1 + random.nextInt(maxDown));
+                for (int r = row; r <= down; r++) {
+                    downColumn[r] = column;
+                }
+                if (down < rows - 1) {
+                    stopBelowDown[down + 1] = column;
+                }
+                row = down;
+            }
+        }
+
+        /**
+         * Force the cells of the staircase on one row: its slides empty and the walls that stop them.
+         * @param row  The row
+         * @param line The row buffer
+         */
+        void apply(int row, byte[] line) {
+            if (stopAfterRight[row] >= 0) {
+                line[stopAfterRight[row]] = '0';
+            }
+            if (stopBelowDown[row] >= 0) {
+                line[stopBelowDown[row]] = '0';
+            }
+            if (slideFrom[row] >= 0) {
+                Arrays.fill(line, slideFrom[row], slideTo[row] + 1, (byte) '.');
+            }
+            if (downColumn[row] >= 0) {
+                line[downColumn[row]] = '.';
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * This class represents a maze as a bit-packed grid, one bit per cell where a set bit is a wall.
+ * Rows are stored one after another in a long[] with a border of walls around the maze,
+ * so a cell one step outside the maze reads as a wall and slides need no bounds checks.
+ */
+public class MazeGrid {
+    private final int rows;
+    private final int columns;
+    // Number of longs per padded row
+    private final int stride;
+    private final long[] words;
+
+    /**
+     * Create a grid of empty cells surrounded by a border of walls.
+     * @param rows    The number of rows in the maze
+     * @param columns The number of columns in the maze
+     */
+    public MazeGrid(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        // One padding bit on each side of the row, rounded up to whole longs
+        this.stride = (columns + 2 + 63) >>> 6;
+        this.words = new long[(rows + 2) * stride];
+
+        // The rows above and below the maze are all walls
+        for (int word = 0; word < stride; word++) {
+            words[word] = -1L;
+            words[(rows + 1) * stride + word] = -1L;
+        }
+        // The first bit and every bit after the last column of a row are walls
+        int lastWord = (columns + 1) >>> 6;
+        long tailMask = -1L << ((columns + 1) & 63);
+        for (int row = 1; row <= rows; row++) {
+            int offset = row * stride;
+            words[offset] |= 1L;
+            words[offset + lastWord] |= tailMask;
+            for (int word = lastWord + 1; word < stride; word++) {
+                words[offset + word] = -1L;
+            }
+        }
+    }
+
+    /**
+     * Create a grid around words already laid out as getWords() returns them, border included.
+     * @param rows    The number of rows in the maze
+     * @param columns The number of columns in the maze
+     * @param words   The padded rows, used as the backing array without copying
+     * @return The bit-packed grid
+     */
+    public static MazeGrid fromWords(int rows, int columns, long[] words) {
+        return new MazeGrid(rows, columns, words);
+    }
+
+    /**
+     * Create a grid around existing words.
+     * @param rows    The number of rows in the maze
+     * @param columns The number of columns in the maze
+     * @param words   The padded rows, border included
+     */
+    private MazeGrid(int rows, int columns, long[] words) {
+        this.rows = rows;
+        this.columns = columns;
+        this.stride = (columns + 2 + 63) >>> 6;
+        if (words.length != (long) (rows + 2) * stride) {
+            throw new IllegalArgumentException("Expected " + (long) (rows + 2) * stride + " words for a "
+                    + rows + " x " + columns + " grid, got " + words.length);
+        }
+        this.words = words;
+    }
+
+    /**
+     * Create a grid from a maze where 0 represents an empty cell and 1 represents an obstacle.
+     * @param loadedMaze The maze to pack
+     * @return The bit-packed grid
+     */
+    public static MazeGrid fromArray(int[][] loadedMaze) {
+        MazeGrid grid = new MazeGrid(loadedMaze.length, loadedMaze[0].length);
+        for (int row = 0; row < grid.rows; row++) {
+            for (int column = 0; column < grid.columns; column++) {
+                if (loadedMaze[row][column] != 0) {
+                    grid.setWall(row, column, true);
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Unpack the grid into a maze where 0 represents an empty cell and 1 represents an obstacle.
+     * @return A new 2D array holding the maze
+     */
+    public int[][] toArray() {
+        int[][] maze = new int[rows][columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                maze[row][column] = isWall(row, column) ? 1 : 0;
+            }
+        }
+        return maze;
+    }
+
+    /**
+     * Create a transposed copy of the grid, so columns of this grid can be scanned as rows of the copy.
+     * @return A new grid where the cell at (row, column) is the cell at (column, row) of this grid
+     */
+    public MazeGrid transpose() {
+        MazeGrid transposed = new MazeGrid(columns, rows);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (isWall(row, column)) {
+                    transposed.setWall(column, row, true);
+                }
+            }
+        }
+        return transposed;
+    }
+
+    /**
+     * Check if a cell is a wall. Cells one step outside the maze are always walls.
+     * @param row    The row of the cell, from -1 to rows
+     * @param column The column of the cell, from -1 to columns
+     * @return true if the cell is a wall, otherwise false
+     */
+    public boolean isWall(int row, int column) {
+        int bit = column + 1;
+        return (words[(row + 1) * stride + (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Set or clear the wall at a cell inside the maze.
+     * @param row    The row of the cell
+     * @param column The column of the cell
+     * @param wall   true to place a wall, false to make the cell empty
+     */
+    public void setWall(int row, int column, boolean wall) {
+        int bit = column + 1;
+        int word = (row + 1) * stride + (bit >>> 6);
+        if (wall) {
+            words[word] |= 1L << bit;
+        } else {
+            words[word] &= ~(1L << bit);
+        }
+    }
+
+    /**
+     * Get the number of rows in the maze.
+     * @return The number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the number of columns in the maze.
+     * @return The number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the number of longs used by each padded row.
+     * @return The row stride in longs
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * Get the backing words. Bit (column + 1) of padded row (row + 1) holds the cell at (row, column).
+     * @return The backing array, shared with this grid
+     */
+    public long[] getWords() {
+        return words;
+    }
+}
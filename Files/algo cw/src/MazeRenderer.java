@@ -0,0 +1,303 @@
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * This class writes maze maps and paths to an output stream through one reusable byte buffer,
+ * straight from the bit-packed grid and the parent links of a BFSAlgorithm, without building strings.
+ * Maps can show the path on top of the maze, and large mazes and long paths can be cut down to a window
+ * and a summary, so the memory used stays the same however long the path is.
+ */
+public class MazeRenderer implements Flushable {
+    // Characters of the map
+    private static final byte empty = '.';
+    private static final byte wall = '0';
+    private static final byte onPath = '*';
+
+    private static final byte[][] directionText = new byte[BFSAlgorithm.movableDirections.length][];
+
+    static {
+        for (int i = 0; i < directionText.length; i++) {
+            directionText[i] = BFSAlgorithm.movableDirections[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position;
+
+    // Rows, columns and moves shown before the rest is summarised, Integer.MAX_VALUE for no limit
+    private int maxRows = Integer.MAX_VALUE;
+    private int maxColumns = Integer.MAX_VALUE;
+    private int maxSteps = Integer.MAX_VALUE;
+
+    // Cells covered by the path of the overlay, kept between maps
+    private long[] pathCells = new long[0];
+
+    /**
+     * Create a renderer with a 64 KB buffer.
+     * @param out The stream to write to, which is flushed but never closed by the renderer
+     */
+    public MazeRenderer(OutputStream out) {
+        this(out, 1 << 16);
+    }
+
+    /**
+     * Create a renderer.
+     * @param out        The stream to write to, which is flushed but never closed by the renderer
+     * @param bufferSize The size of the buffer in bytes
+     */
+    public MazeRenderer(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[Math.max(64, bufferSize)];
+    }
+
+    /**
+     * Limit how much of a maze or path is written.
+     * @param maxRows    The number of rows of a map to show
+     * @param maxColumns The number of columns of a map to show
+     * @param maxSteps   The number of moves of a path to show, split between the start and the end of the path
+     */
+    public void setLimits(int maxRows, int maxColumns, int maxSteps) {
+        this.maxRows = maxRows;
+        this.maxColumns = maxColumns;
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Write the map of a maze, one line per row with '.' for an empty cell and '0' for a wall.
+     * @param grid The bit-packed maze
+     * @throws IOException If the stream cannot be written
+     */
+    public void writeMap(MazeGrid grid) throws IOException {
+        writeMap(grid, null, null, false);
+    }
+
+    /**
+     * Write the map of a maze with the path found by a search on top of it:
+     * 'S' and 'F' for the starting and ending positions and '*' for every other cell the path covers.
+     * @param grid   The bit-packed maze
+     * @param solver The solver whose last search was on this maze
+     * @param start  The starting position as {row, column}
+     * @param end    The ending position as {row, column}
+     * @throws IOException If the stream cannot be written
+     */
+    public void writeMap(MazeGrid grid, BFSAlgorithm solver, int[] start, int[] end) throws IOException {
+        int columns = grid.getColumns();
+        int words = (grid.getRows() * columns + 63) >>> 6;
+        if (pathCells.length < words) {
+            pathCells = new long[words];
+        } else {
+            Arrays.fill(pathCells, 0, words, 0L);
+        }
+        // Mark every cell the slides of the path run over, from the cell the slide starts at to where it stops
+        int[] from = {solver.getStartCell()};
+        solver.walkPath((step, direction, cell) -> {
+            int offset = BFSAlgorithm.movableCoordinates[direction][0] * columns + BFSAlgorithm.movableCoordinates[direction][1];
+            for (int covered = from[0]; covered != cell; covered += offset) {
+                pathCells[covered >>> 6] |= 1L << covered;
+            }
+            pathCells[cell >>> 6] |= 1L << cell;
+            from[0] = cell;
+        });
+        writeMap(grid, start, end, true);
+    }
+
+    /**
+     * Write the map of a maze, cut down to the row and column limits.
+     * @param grid    The bit-packed maze
+     * @param start   The starting position, or null
+     * @param end     The ending position, or null
+     * @param overlay true to show the marked path cells
+     * @throws IOException If the stream cannot be written
+     */
+    private void writeMap(MazeGrid grid, int[] start, int[] end, boolean overlay) throws IOException {
+        int rows = Math.min(grid.getRows(), maxRows);
+        int columns = Math.min(grid.getColumns(), maxColumns);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                byte cell;
+                if (grid.isWall(row, column)) {
+                    cell = wall;
+                } else if (overlay && start[0] == row && start[1] == column) {
+                    cell = 'S';
+                } else if (overlay && end[0] == row && end[1] == column) {
+                    cell = 'F';
+                } else if (overlay && isOnPath(row * grid.getColumns() + column)) {
+                    cell = onPath;
+                } else {
+                    cell = empty;
+                }
+                if (position == buffer.length) {
+                    flushBuffer();
+                }
+                buffer[position++] = cell;
+            }
+            writeByte((byte) '\n');
+        }
+        if (rows < grid.getRows() || columns < grid.getColumns()) {
+            writeText("... showing " + rows + " of " + grid.getRows() + " rows and " + columns + " of " + grid.getColumns() + " columns\n");
+        }
+    }
+
+    /**
+     * Check if a cell is covered by the path of the overlay.
+     * @param cell The index of the cell
+     * @return true if the path covers the cell, otherwise false
+     */
+    private boolean isOnPath(int cell) {
+        return (pathCells[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Write a one-line summary of a maze: its size and how many of its cells are walls.
+     * @param grid The bit-packed maze
+     * @throws IOException If the stream cannot be written
+     */
+    public void writeSummary(MazeGrid grid) throws IOException {
+        // Count the wall bits of the whole grid, then take off the border, which has no cells of the maze
+        long walls = 0;
+        for (long word : grid.getWords()) {
+            walls += Long.bitCount(word);
+        }
+        walls -= (long) grid.getStride() * 64 * 2 + (long) grid.getRows() * (grid.getStride() * 64 - grid.getColumns());
+        long cells = (long) grid.getRows() * grid.getColumns();
+        writeText("Maze " + grid.getRows() + " x " + grid.getColumns() + ", " + cells + " cells, " + walls + " walls ("
+                + String.format(Locale.ROOT, "%.1f", 100.0 * walls / cells) + "%)\n");
+    }
+
+    /**
+     * Write the path found by the last search in the format of BFSAlgorithm.getPath(),
+     * showing only the first and last moves when the path is longer than the step limit.
+     * @param solver The solver whose last search is written
+     * @throws IOException If the stream cannot be written
+     */
+    public void writePath(BFSAlgorithm solver) throws IOException {
+        int steps = solver.getSteps();
+        if (steps < 0) {
+            // The message says whether no path exists or the search was stopped by its limits
+            writeText(solver.getPath());
+            return;
+        }
+        int columns = solver.getColumns();
+        int startCell = solver.getStartCell();
+        writeText("Start at: (");
+        writeCoordinates(startCell, columns);
+        writeText(")\n");
+
+        // Moves between the head and the tail of a long path are left out
+        int head = steps > maxSteps ? maxSteps / 2 : steps;
+        int tail = steps > maxSteps ? steps - (maxSteps - maxSteps / 2) : steps;
+        solver.walkPath((step, direction, cell) -> {
+            if (step > head && step <= tail) {
+                if (step == head + 1) {
+                    writeText("... " + (tail - head) + " moves not shown ...\n");
+                }
+                return;
+            }
+            writeNumber(step);
+            writeByte((byte) '.');
+            writeByte((byte) ' ');
+            writeBytes(directionText[direction]);
+            writeByte((byte) ' ');
+            writeByte((byte) '(');
+            writeCoordinates(cell, columns);
+            writeByte((byte) ')');
+            writeByte((byte) '\n');
+        });
+    }
+
+    /**
+     * Write the one-based "x, y" coordinates of a cell.
+     * @param cell    The index of the cell
+     * @param columns The number of columns in the maze
+     * @throws IOException If the stream cannot be written
+     */
+    private void writeCoordinates(int cell, int columns) throws IOException {
+        writeNumber(cell % columns + 1);
+        writeByte((byte) ',');
+        writeByte((byte) ' ');
+        writeNumber(cell / columns + 1);
+    }
+
+    /**
+     * Write a non-negative number in decimal without creating a string.
+     * @param number The number
+     * @throws IOException If the stream cannot be written
+     */
+    private void writeNumber(int number) throws IOException {
+        if (buffer.length - position < 10) {
+            flushBuffer();
+        }
+        int digits = 1;
+        for (int rest = number / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int index = position + digits - 1; index >= position; index--) {
+            buffer[index] = (byte) ('0' + number % 10);
+            number /= 10;
+        }
+        position += digits;
+    }
+
+    /**
+     * Write text made of ASCII characters.
+     * @param text The text
+     * @throws IOException If the stream cannot be written
+     */
+    public void writeText(String text) throws IOException {
+        writeBytes(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Write bytes through the buffer.
+     * @param bytes The bytes
+     * @throws IOException If the stream cannot be written
+     */
+    private void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            int count = Math.min(bytes.length - offset, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, count);
+            position += count;
+            offset += count;
+        }
+    }
+
+    /**
+     * Write one byte through the buffer.
+     * @param value The byte
+     * @throws IOException If the stream cannot be written
+     */
+    private void writeByte(byte value) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = value;
+    }
+
+    /**
+     * Hand the buffered bytes to the stream without flushing the stream.
+     * @throws IOException If the stream cannot be written
+     */
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    /**
+     * Write out the buffered bytes and flush the stream.
+     * @throws IOException If the stream cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+}
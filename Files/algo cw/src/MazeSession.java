@@ -0,0 +1,245 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class answers many start/finish queries on one maze, which is loaded and turned into a slide table only once.
+ * For every start position it keeps a BFS tree of the whole maze in a bounded least-recently-used cache,
+ * so a query from a start position already in the cache is answered by walking the tree instead of searching again.
+ * The trees are built without an ending position: a slide that passes through the end position would stop on it,
+ * but that only changes the last move, so a query picks the closest cell in the tree whose slide passes over its end position.
+ */
+public class MazeSession {
+    private final MazeGrid grid;
+    private final SlideTable slideTable;
+    private final int rows;
+    private final int columns;
+    private final Map<Integer, SourceTree> trees;
+    private long cacheHits;
+    private long cacheMisses;
+
+    /**
+     * Create a session for a maze.
+     * @param grid          The bit-packed maze
+     * @param cacheCapacity The number of BFS trees kept in the cache
+     */
+    public MazeSession(MazeGrid grid, int cacheCapacity) {
+        this.grid = grid;
+        this.slideTable = new SlideTable(grid);
+        this.rows = grid.getRows();
+        this.columns = grid.getColumns();
+        // Access-ordered map that drops the least recently used tree once it is full
+        this.trees = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, SourceTree> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+    }
+
+    /**
+     * Load a puzzle file into a session. The S and F positions in the file are not used.
+     * @param path          The puzzle file
+     * @param cacheCapacity The number of BFS trees kept in the cache
+     * @return The session
+     * @throws IOException If the file cannot be read or is not a valid puzzle
+     */
+    public static MazeSession open(Path path, int cacheCapacity) throws IOException {
+        return new MazeSession(Puzzle.load(path).getGrid(), cacheCapacity);
+    }
+
+    /**
+     * Finds the shortest path from start position to end position.
+     * @param mazeStartPos The starting position. mazeStartPos[0] represents the row and mazeStartPos[1] represents the column.
+     * @param mazeEndPos   The ending position. mazeEndPos[0] represents the row and mazeEndPos[1] represents the column.
+     * @return The shortest path in the same format as BFSAlgorithm
+     */
+    public String shortestDistance(int[] mazeStartPos, int[] mazeEndPos) {
+        int startCell = checkCell(mazeStartPos);
+        int endCell = checkCell(mazeEndPos);
+        SourceTree tree = treeFrom(startCell);
+        long lastMove = findLastMove(tree, endCell);
+        if (lastMove < 0) {
+            return "No path was found!";
+        }
+
+        // Lay out the tree path to the cell the last move starts from, then the last move itself
+        int from = (int) (lastMove >>> 2);
+        int steps = from == endCell ? 0 : tree.depth[from] + 1;
+        int[] cells = new int[steps];
+        byte[] directions = new byte[steps];
+        if (steps > 0) {
+            cells[steps - 1] = endCell;
+            directions[steps - 1] = (byte) (lastMove & 3);
+            int index = steps - 1;
+            for (int cell = from; cell != startCell; cell = tree.parent[cell]) {
+                cells[--index] = cell;
+                directions[index] = tree.dirTo[cell];
+            }
+        }
+        return BFSAlgorithm.formatPath(startCell, cells, directions, steps, columns);
+    }
+
+    /**
+     * Get the number of moves on the shortest path from start position to end position.
+     * @param mazeStartPos The starting position
+     * @param mazeEndPos   The ending position
+     * @return The number of moves, or -1 if there is no path
+     */
+    public int distance(int[] mazeStartPos, int[] mazeEndPos) {
+        int startCell = checkCell(mazeStartPos);
+        int endCell = checkCell(mazeEndPos);
+        SourceTree tree = treeFrom(startCell);
+        long lastMove = findLastMove(tree, endCell);
+        if (lastMove < 0) {
+            return -1;
+        }
+        int from = (int) (lastMove >>> 2);
+        return from == endCell ? 0 : tree.depth[from] + 1;
+    }
+
+    /**
+     * Find the closest cell of a tree whose slide passes over or stops on the end position.
+     * Walking back from the end position in every direction over empty cells gives exactly the cells
+     * whose slide in that direction reaches it.
+     * @param tree    The BFS tree of the start position
+     * @param endCell The index of the end cell
+     * @return The cell packed with the direction of the last move as cell * 4 + direction,
+     *         endCell * 4 if the start is the end, or -1 if the end cannot be reached
+     */
+    private long findLastMove(SourceTree tree, int endCell) {
+        if (tree.depth[endCell] == 0) {
+            return (long) endCell << 2;
+        }
+        int endRow = endCell / columns;
+        int endColumn = endCell - endRow * columns;
+        int bestDepth = Integer.MAX_VALUE;
+        long best = -1;
+        for (int i = 0; i < BFSAlgorithm.movableCoordinates.length; i++) {
+            int rowStep = BFSAlgorithm.movableCoordinates[i][0];
+            int columnStep = BFSAlgorithm.movableCoordinates[i][1];
+            int row = endRow - rowStep;
+            int column = endColumn - columnStep;
+            while (!grid.isWall(row, column)) {
+                int cell = row * columns + column;
+                int depth = tree.depth[cell];
+                if (depth >= 0 && depth < bestDepth) {
+                    bestDepth = depth;
+                    best = ((long) cell << 2) | i;
+                }
+                row -= rowStep;
+                column -= columnStep;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the BFS tree of a start position from the cache, building it on a miss.
+     * @param startCell The index of the start cell
+     * @return The BFS tree
+     */
+    private synchronized SourceTree treeFrom(int startCell) {
+        SourceTree tree = trees.get(startCell);
+        if (tree != null) {
+            cacheHits++;
+            return tree;
+        }
+        cacheMisses++;
+        tree = new SourceTree(startCell);
+        trees.put(startCell, tree);
+        return tree;
+    }
+
+    /**
+     * Check that a position is an empty cell of the maze.
+     * @param position The position as {row, column}
+     * @return The index of the cell
+     */
+    private int checkCell(int[] position) {
+        int row = position[0];
+        int column = position[1];
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IllegalArgumentException("Position (" + (column + 1) + ", " + (row + 1) + ") is outside the maze");
+        }
+        if (grid.isWall(row, column)) {
+            throw new IllegalArgumentException("Position (" + (column + 1) + ", " + (row + 1) + ") is a wall");
+        }
+        return row * columns + column;
+    }
+
+    /**
+     * Get the number of queries answered from a cached tree.
+     * @return The number of cache hits
+     */
+    public synchronized long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Get the number of queries that had to build a new tree.
+     * @return The number of cache misses
+     */
+    public synchronized long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * Get the maze of this session.
+     * @return The bit-packed maze
+     */
+    public MazeGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Get the slide table of this session.
+     * @return The slide table, built once when the session was created
+     */
+    public SlideTable getSlideTable() {
+        return slideTable;
+    }
+
+    /**
+     * A BFS tree over the whole maze from one start cell, with slides stopping only at walls.
+     */
+    private class SourceTree {
+        // Number of moves from the start cell, -1 for cells that cannot be reached
+        final int[] depth;
+        final int[] parent;
+        final byte[] dirTo;
+
+        /**
+         * Run an exhaustive BFS from a start cell.
+         * @param startCell The index of the start cell
+         */
+        SourceTree(int startCell) {
+            int cells = rows * columns;
+            depth = new int[cells];
+            parent = new int[cells];
+            dirTo = new byte[cells];
+            Arrays.fill(depth, -1);
+
+            int[] queue = new int[cells];
+            int head = 0;
+            int tail = 0;
+            depth[startCell] = 0;
+            parent[startCell] = -1;
+            queue[tail++] = startCell;
+            while (head < tail) {
+                int cell = queue[head++];
+                for (int i = 0; i < BFSAlgorithm.movableCoordinates.length; i++) {
+                    int stop = slideTable.stopOf(i, cell);
+                    if (depth[stop] < 0) {
+                        depth[stop] = depth[cell] + 1;
+                        parent[stop] = cell;
+                        dirTo[stop] = (byte) i;
+                        queue[tail++] = stop;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This program compares OutOfCoreSolver with BFSAlgorithm on puzzles that fit on the heap, so the cost of keeping
+ * the levels and queue on disk can be seen. Both solvers must find the same number of moves on every puzzle.
+ * The out-of-core solver runs twice, once with the queue on the heap and once with a small queue block that spills.
+ */
+public class OutOfCoreBenchmark {
+    private static final String[] puzzleFiles = {"puzzle_320.txt", "puzzle_640.txt", "puzzle_1280.txt"};
+    private static final int warmupRuns = 2;
+    private static final int measuredRuns = 5;
+    private static final int spillingBlock = 4096;
+
+    /**
+     * Run the benchmark.
+     * @param args Optional folder holding the puzzle files, "algo cw/PuzzleFiles" by default,
+     *             followed by the optional flag --generated SIZE,SIZE,... for random puzzles made by MazeGenerator
+     */
+    public static void main(String[] args) throws Exception {
+        String folder = "algo cw/PuzzleFiles";
+        String generated = "2560,5120";
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--generated")) {
+                generated = args[++i];
+            } else {
+                folder = args[i];
+            }
+        }
+
+        Path work = Files.createTempDirectory("out_of_core_");
+        work.toFile().deleteOnExit();
+        List<Path> files = new ArrayList<>();
+        for (String fileName : puzzleFiles) {
+            files.add(new File(folder, fileName).toPath());
+        }
+        if (!generated.isBlank()) {
+            for (String size : generated.split(",")) {
+                int n = Integer.parseInt(size.trim());
+                Path file = work.resolve("random_" + n + ".txt");
+                new MazeGenerator(MazeGenerator.Layout.RANDOM, n, n, MazeGenerator.defaultDensity(MazeGenerator.Layout.RANDOM), 42).write(file);
+                files.add(file);
+            }
+        }
+
+        System.out.printf("%-18s %-14s %12s %14s %10s %12s%n", "File", "Solver", "Avg (ms)", "Cells/s (M)", "Relative", "Spilled (MB)");
+        for (Path file : files) {
+            Puzzle puzzle = Puzzle.load(file);
+            MazeGrid grid = puzzle.getGrid();
+            int[] start = puzzle.getStartingPos();
+            int[] end = puzzle.getEndingPos();
+            Path maze = work.resolve(file.getFileName() + MazeFile.extension);
+            MazeFile.write(puzzle, maze);
+            String name = file.getFileName().toString();
+
+            // The in-heap solver is the baseline
+            BFSAlgorithm heap = new BFSAlgorithm(BFSAlgorithm.SlideMode.WORD);
+            long heapNanos = 0;
+            for (int run = 0; run < warmupRuns + measuredRuns; run++) {
+                long begin = System.nanoTime();
+                heap.solve(grid, start, end);
+                if (run >= warmupRuns) {
+                    heapNanos += System.nanoTime() - begin;
+                }
+            }
+            double heapMillis = heapNanos / 1e6 / measuredRuns;
+            System.out.printf("%-18s %-14s %12.2f %14.2f %10.2f %12s%n", name, "in-heap", heapMillis,
+                    heap.getNodesExpanded() / heapMillis / 1e3, 1.0, "-");
+
+            for (int block : new int[]{1 << 20, spillingBlock}) {
+                OutOfCoreSolver solver = new OutOfCoreSolver(work, block);
+                long nanos = 0;
+                for (int run = 0; run < warmupRuns + measuredRuns; run++) {
+                    long begin = System.nanoTime();
+                    solver.solve(maze);
+                    if (run >= warmupRuns) {
+                        nanos += System.nanoTime() - begin;
+                    }
+                }
+                if (solver.getSteps() != heap.getSteps()) {
+                    throw new IllegalStateException("OutOfCoreSolver found " + solver.getSteps() + " moves on " + name
+                            + " instead of " + heap.getSteps());
+                }
+                double millis = nanos / 1e6 / measuredRuns;
+                System.out.printf("%-18s %-14s %12.2f %14.2f %10.2f %12.1f%n", name, block == spillingBlock ? "mapped+spill" : "mapped",
+                        millis, solver.getNodesExpanded() / millis / 1e3, heapMillis / millis, solver.getSpilledBytes() / 1e6);
+            }
+            Files.delete(maze);
+        }
+        for (Path file : files) {
+            if (file.startsWith(work)) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(work);
+    }
+}
@@ -0,0 +1,585 @@
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class solves puzzles too large for the heap. The grid is read straight from a memory-mapped binary maze,
+ * the cells already reached are one bit each in a memory-mapped work file, and the queue is a log of the cells
+ * in the order they were reached, with a marker after every level. The log keeps two fixed blocks on the heap
+ * and spills the rest to disk in sequential segment files, which are kept until the search ends because
+ * the path is rebuilt from them in one pass backwards: the cell a move came from is the cell of the level before
+ * that lies on the run of empty cells the move slid along.
+ * The heap used is the same for every size of puzzle, for example a 50000 x 50000 puzzle solves with -Xmx256m.
+ */
+public class OutOfCoreSolver {
+    // Words of the visited file held by one mapping, 1 GB of longs
+    private static final int visitedChunkBits = 27;
+    private static final int visitedChunkWords = 1 << visitedChunkBits;
+    // Moves of the path file held by one mapping, 1 GB of longs
+    private static final int pathChunkBits = 27;
+    private static final int pathChunkMoves = 1 << pathChunkBits;
+    // Entry of the log that ends a level, never a cell index
+    private static final long levelEnd = -1;
+
+    private final Path workFolder;
+    private final int queueBlock;
+
+    // Blocks of the log, kept between searches, and the buffer segments are written and read through once one spills
+    private final long[] headBlock;
+    private final long[] tailBlock;
+    private ByteBuffer transfer;
+
+    // The grid of the current puzzle, as the words of a MazeGrid
+    private LongBuffer words;
+    private int rows;
+    private int columns;
+    private int stride;
+    private long startCell;
+    private long endCell;
+
+    // One bit for every cell, set once the cell has been reached
+    private LongBuffer[] visited;
+
+    private long steps = -1;
+    private LongBuffer[] pathMoves;
+    private long nodesExpanded;
+    private long searchTimeNanos;
+    private long spilledSegments;
+    private long spilledBytes;
+
+    /**
+     * Create a solver.
+     * @param workFolder The folder for the visited, queue and path files, which are deleted when they are no longer needed
+     * @param queueBlock The number of cells in each of the two queue blocks held on the heap
+     */
+    public OutOfCoreSolver(Path workFolder, int queueBlock) {
+        if (queueBlock < 1) {
+            throw new IllegalArgumentException("The queue block must hold at least one cell, got " + queueBlock);
+        }
+        this.workFolder = workFolder;
+        this.queueBlock = queueBlock;
+        this.headBlock = new long[queueBlock];
+        this.tailBlock = new long[queueBlock];
+    }
+
+    /**
+     * Run the solver.
+     * @param args A text puzzle or binary maze file followed by the optional flags --work FOLDER, --queue-block N
+     *             and --path FILE to write the path to
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: OutOfCoreSolver <puzzle.txt|puzzle.maze> [--work folder] [--queue-block N] [--path file]");
+            return;
+        }
+        Path input = Path.of(args[0]);
+        Path work = Path.of(System.getProperty("java.io.tmpdir"));
+        int queueBlock = 1 << 20;
+        Path pathFile = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--work" -> work = Path.of(args[++i]);
+                case "--queue-block" -> queueBlock = Integer.parseInt(args[++i]);
+                case "--path" -> pathFile = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        Files.createDirectories(work);
+
+        // Text puzzles are converted row by row first, the binary maze is what gets mapped
+        Path maze = input;
+        long convertStart = System.nanoTime();
+        if (!input.getFileName().toString().endsWith(MazeFile.extension)) {
+            maze = Files.createTempFile(work, "grid_", MazeFile.extension);
+            maze.toFile().deleteOnExit();
+            MazeFile.convert(input, maze);
+        }
+        long convertNanos = System.nanoTime() - convertStart;
+
+        OutOfCoreSolver solver = new OutOfCoreSolver(work, queueBlock);
+        long steps = solver.solve(maze);
+        System.out.printf("Puzzle %d x %d: %s, %d cells expanded, convert %.1f ms, search %.1f ms, %d queue segments (%.1f MB) spilled%n",
+                solver.rows, solver.columns, steps < 0 ? "no path" : steps + " moves", solver.nodesExpanded,
+                convertNanos / 1e6, solver.searchTimeNanos / 1e6, solver.spilledSegments, solver.spilledBytes / 1e6);
+        if (pathFile != null) {
+            try (OutputStream out = Files.newOutputStream(pathFile)) {
+                solver.writePath(out);
+            }
+        }
+        if (maze != input) {
+            Files.deleteIfExists(maze);
+        }
+    }
+
+    /**
+     * Find the shortest path of a binary maze.
+     * @param mazeFile The binary maze file
+     * @return The number of moves on the path, or -1 if there is none
+     * @throws IOException If the maze cannot be read or the work files cannot be written
+     */
+    public long solve(Path mazeFile) throws IOException {
+        steps = -1;
+        pathMoves = null;
+        nodesExpanded = 0;
+        try (FileChannel channel = FileChannel.open(mazeFile, StandardOpenOption.READ)) {
+            int[] header = MazeFile.readHeader(mazeFile, channel);
+            if (header[6] > 1) {
+                throw new IOException(mazeFile + " has " + header[6] + " ending positions, the out-of-core solver takes one");
+            }
+            rows = header[0];
+            columns = header[1];
+            stride = (columns + 2 + 63) >>> 6;
+            long size = channel.size() - MazeFile.getHeaderBytes();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(mazeFile + " is larger than one mapping can hold");
+            }
+            words = channel.map(FileChannel.MapMode.READ_ONLY, MazeFile.getHeaderBytes(), size).asLongBuffer();
+            startCell = (long) header[2] * columns + header[3];
+            endCell = (long) header[4] * columns + header[5];
+            if (isWall(header[2], header[3]) || isWall(header[4], header[5])) {
+                throw new IOException(mazeFile + " has a starting or ending position on a wall");
+            }
+        }
+
+        long searchStart = System.nanoTime();
+        visited = mapVisited((long) rows * columns);
+        try (LevelLog log = new LevelLog()) {
+            setVisited(startCell);
+            log.add(startCell);
+            log.add(levelEnd);
+            long level = 0;
+            long read = 0;
+            boolean found = startCell == endCell;
+            while (!found) {
+                long cell = log.get(read++);
+                if (cell == levelEnd) {
+                    // Every cell of the next level is in the log once a level has been expanded
+                    if (read == log.size()) {
+                        break;
+                    }
+                    log.add(levelEnd);
+                    level++;
+                    continue;
+                }
+                nodesExpanded++;
+                for (int direction = 0; direction < 4; direction++) {
+                    long stop = slide(cell, direction);
+                    if (stop != cell && !isVisited(stop)) {
+                        setVisited(stop);
+                        if (stop == endCell) {
+                            found = true;
+                            break;
+                        }
+                        log.add(stop);
+                    }
+                }
+            }
+            if (found) {
+                steps = startCell == endCell ? 0 : level + 1;
+                rebuildPath(log);
+            }
+            spilledSegments = log.segments.size();
+            spilledBytes = spilledSegments * queueBlock * 8L;
+        }
+        searchTimeNanos = System.nanoTime() - searchStart;
+        // The mappings go once they are unreachable
+        visited = null;
+        return steps;
+    }
+
+    /**
+     * Create the visited file and map it in chunks. The file is sparse, so only the pages of reached cells use disk.
+     * @param cells The number of cells in the maze
+     * @return The chunks of the visited file
+     * @throws IOException If the file cannot be created
+     */
+    private LongBuffer[] mapVisited(long cells) throws IOException {
+        Path file = Files.createTempFile(workFolder, "visited_", ".bin");
+        long totalWords = (cells + 63) >>> 6;
+        LongBuffer[] chunks = new LongBuffer[(int) ((totalWords + visitedChunkWords - 1) >>> visitedChunkBits)];
+        // The file is deleted when the channel closes, the mappings stay valid until they are collected
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.SPARSE, StandardOpenOption.DELETE_ON_CLOSE)) {
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                long first = (long) chunk << visitedChunkBits;
+                long count = Math.min(visitedChunkWords, totalWords - first);
+                chunks[chunk] = channel.map(FileChannel.MapMode.READ_WRITE, first * 8, count * 8)
+                        .order(ByteOrder.nativeOrder()).asLongBuffer();
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Check if a cell has been reached.
+     * @param cell The index of the cell
+     * @return true if the cell has been reached, otherwise false
+     */
+    private boolean isVisited(long cell) {
+        long word = cell >>> 6;
+        return (visited[(int) (word >>> visitedChunkBits)].get((int) word & (visitedChunkWords - 1)) & (1L << cell)) != 0;
+    }
+
+    /**
+     * Mark a cell as reached.
+     * @param cell The index of the cell
+     */
+    private void setVisited(long cell) {
+        long word = cell >>> 6;
+        LongBuffer chunk = visited[(int) (word >>> visitedChunkBits)];
+        int index = (int) word & (visitedChunkWords - 1);
+        chunk.put(index, chunk.get(index) | 1L << cell);
+    }
+
+    /**
+     * Check if a cell is a wall, the border around the maze included.
+     * @param row    The row of the cell, from -1 to rows
+     * @param column The column of the cell, from -1 to columns
+     * @return true if the cell is a wall, otherwise false
+     */
+    private boolean isWall(int row, int column) {
+        int bit = column + 1;
+        return (words.get((row + 1) * stride + (bit >>> 6)) & (1L << bit)) != 0;
+    }
+
+    /**
+     * Slide from a cell until the next cell is a wall or the ending position is reached.
+     * Left and right slides skip whole words of empty cells like the WORD slide mode.
+     * @param cell      The index of the cell
+     * @param direction The direction to move in
+     * @return The index of the cell the slide stops at
+     */
+    private long slide(long cell, int direction) {
+        int row = (int) (cell / columns);
+        int column = (int) (cell % columns);
+        int endRow = (int) (endCell / columns);
+        int endColumn = (int) (endCell % columns);
+        int base = (row + 1) * stride;
+        switch (direction) {
+            case 3 -> {
+                // The first wall to the right, or the ending position if it comes before it
+                int bit = column + 2;
+                int word = bit >>> 6;
+                long bits = words.get(base + word) & (-1L << bit);
+                while (bits == 0) {
+                    bits = words.get(base + ++word);
+                }
+                int stop = (word << 6) + Long.numberOfTrailingZeros(bits) - 2;
+                if (row == endRow && endColumn > column && endColumn < stop) {
+                    stop = endColumn;
+                }
+                return (long) row * columns + stop;
+            }
+            case 2 -> {
+                int bit = column;
+                int word = bit >>> 6;
+                long bits = words.get(base + word) & (-1L >>> (63 - (bit & 63)));
+                while (bits == 0) {
+                    bits = words.get(base + --word);
+                }
+                int stop = (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+                if (row == endRow && endColumn < column && endColumn > stop) {
+                    stop = endColumn;
+                }
+                return (long) row * columns + stop;
+            }
+            default -> {
+                int step = BFSAlgorithm.movableCoordinates[direction][0];
+                while (!isWall(row + step, column) && !(row == endRow && column == endColumn)) {
+                    row += step;
+                }
+                return (long) row * columns + column;
+            }
+        }
+    }
+
+    /**
+     * Rebuild the path from the ending position back to the start, reading the log backwards one level at a time,
+     * and write every move into a memory-mapped path file at its step. A move in some direction that stops at a cell
+     * starts from a cell on the run of empty cells behind it, and every cell of the run slides to the same stop,
+     * so the cell the move came from is any cell of the level before that lies on one of those runs.
+     * @param log The log of the search
+     * @throws IOException If the path file cannot be created or the log cannot be read
+     */
+    private void rebuildPath(LevelLog log) throws IOException {
+        Path file = Files.createTempFile(workFolder, "path_", ".bin");
+        pathMoves = new LongBuffer[(int) ((steps + pathChunkMoves - 1) >>> pathChunkBits)];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE)) {
+            for (int chunk = 0; chunk < pathMoves.length; chunk++) {
+                long first = (long) chunk << pathChunkBits;
+                long count = Math.min(pathChunkMoves, steps - first);
+                pathMoves[chunk] = channel.map(FileChannel.MapMode.READ_WRITE, first * 8, count * 8)
+                        .order(ByteOrder.nativeOrder()).asLongBuffer();
+            }
+        }
+
+        // Start of the run behind the cell for every direction, or -1 when a slide in that direction cannot stop there
+        long[] runStart = new long[4];
+        long cell = endCell;
+        long index = log.size() - 1;
+        for (long step = steps; step > 0; step--) {
+            findRuns(cell, runStart);
+            // Skip the rest of the level the cell is in, up to the marker before it
+            while (log.get(index) != levelEnd) {
+                index--;
+            }
+            index--;
+            int direction = -1;
+            long from = -1;
+            while (direction < 0) {
+                long candidate = log.get(index);
+                if (candidate == levelEnd) {
+                    throw new IllegalStateException("No move leads to cell " + cell + " from level " + (step - 1));
+                }
+                direction = runDirection(cell, runStart, candidate);
+                from = candidate;
+                index--;
+            }
+            long move = step - 1;
+            pathMoves[(int) (move >>> pathChunkBits)].put((int) move & (pathChunkMoves - 1), cell << 2 | direction);
+            cell = from;
+        }
+    }
+
+    /**
+     * Find the runs of empty cells a slide can come along to stop at a cell.
+     * @param cell     The index of the cell
+     * @param runStart Filled with the index of the far end of the run for every direction of the slide,
+     *                 or -1 when a slide in that direction cannot stop at the cell
+     */
+    private void findRuns(long cell, long[] runStart) {
+        int row = (int) (cell / columns);
+        int column = (int) (cell % columns);
+        for (int direction = 0; direction < 4; direction++) {
+            int rowStep = BFSAlgorithm.movableCoordinates[direction][0];
+            int columnStep = BFSAlgorithm.movableCoordinates[direction][1];
+            runStart[direction] = -1;
+            // A slide in this direction can only stop here at a wall or at the ending position
+            if (cell != endCell && !isWall(row + rowStep, column + columnStep)) {
+                continue;
+            }
+            int r = row;
+            int c = column;
+            // A slide from beyond the ending position stops on it instead
+            while (!isWall(r - rowStep, c - columnStep) && (long) (r - rowStep) * columns + c - columnStep != endCell) {
+                r -= rowStep;
+                c -= columnStep;
+            }
+            if (r != row || c != column) {
+                runStart[direction] = (long) r * columns + c;
+            }
+        }
+    }
+
+    /**
+     * Find the direction of a slide from a candidate cell that stops at a cell.
+     * @param cell      The index of the cell the slide stops at
+     * @param runStart  The far ends of the runs behind the cell from findRuns
+     * @param candidate The index of the cell the slide may start from
+     * @return The direction of the slide, or -1 if the candidate is on none of the runs
+     */
+    private int runDirection(long cell, long[] runStart, long candidate) {
+        for (int direction = 0; direction < 4; direction++) {
+            long start = runStart[direction];
+            if (start < 0) {
+                continue;
+            }
+            // Left and right runs lie on the row of the cell, up and down runs on its column
+            boolean inLine = direction >= 2 ? candidate / columns == cell / columns : candidate % columns == cell % columns;
+            if (inLine && candidate >= Math.min(start, cell) && candidate <= Math.max(start, cell)) {
+                return direction;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Write the path found by the last search in the format of BFSAlgorithm.getPath().
+     * @param out The stream to write to, which is flushed but not closed
+     * @throws IOException If the stream cannot be written
+     */
+    public void writePath(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII), 1 << 16);
+        if (steps < 0) {
+            writer.write("No path was found!");
+        } else {
+            writer.write("Start at: (" + (startCell % columns + 1) + ", " + (startCell / columns + 1) + ")\n");
+            for (long step = 0; step < steps; step++) {
+                long move = pathMoves[(int) (step >>> pathChunkBits)].get((int) step & (pathChunkMoves - 1));
+                long cell = move >>> 2;
+                writer.write((step + 1) + ". " + BFSAlgorithm.movableDirections[(int) (move & 3)]
+                        + " (" + (cell % columns + 1) + ", " + (cell / columns + 1) + ")\n");
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Get the path found by the last search as text, only sensible for paths that fit on the heap.
+     * @return The path in the format of BFSAlgorithm.getPath()
+     * @throws IOException If the path cannot be read back
+     */
+    public String getPath() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writePath(out);
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Get the number of moves on the path found by the last search.
+     * @return The number of moves, or -1 if no path was found
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Get the number of cells taken off the queue during the last search.
+     * @return The number of expanded cells
+     */
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /**
+     * Get the time of the last search, including mapping the visited file and rebuilding the path.
+     * @return The search time in nanoseconds
+     */
+    public long getSearchTimeNanos() {
+        return searchTimeNanos;
+    }
+
+    /**
+     * Get the number of queue segments written to disk during the last search.
+     * @return The number of segments
+     */
+    public long getSpilledSegments() {
+        return spilledSegments;
+    }
+
+    /**
+     * Get the bytes of queue segments written to disk during the last search.
+     * @return The spilled bytes
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    /**
+     * The log of reached cells that the search reads as its queue. Entry i of the log is in segment i / queueBlock.
+     * The newest entries are held in the tail block on the heap, and when the tail block fills up it is written
+     * to a new segment file. Entries in segments are read through the head block, which holds one segment at a time,
+     * so reading forwards during the search and backwards while rebuilding the path both read each segment once.
+     */
+    private class LevelLog implements AutoCloseable {
+        private final long[] head = headBlock;
+        private final long[] tail = tailBlock;
+        private final List<Path> segments = new ArrayList<>();
+        // Segment held in the head block, -1 for none
+        private int headSegment = -1;
+        private long size;
+
+        /**
+         * Add an entry to the end of the log.
+         * @param entry The index of a cell, or levelEnd
+         * @throws IOException If a segment cannot be written
+         */
+        void add(long entry) throws IOException {
+            int position = (int) (size - (long) segments.size() * queueBlock);
+            tail[position] = entry;
+            size++;
+            if (position + 1 == queueBlock) {
+                spill();
+            }
+        }
+
+        /**
+         * Get an entry of the log.
+         * @param index The index of the entry, below size()
+         * @return The entry
+         * @throws IOException If a segment cannot be read
+         */
+        long get(long index) throws IOException {
+            long tailStart = (long) segments.size() * queueBlock;
+            if (index >= tailStart) {
+                return tail[(int) (index - tailStart)];
+            }
+            int segment = (int) (index / queueBlock);
+            if (segment != headSegment) {
+                load(segment);
+            }
+            return head[(int) (index - (long) segment * queueBlock)];
+        }
+
+        /**
+         * Get the number of entries in the log.
+         * @return The number of entries
+         */
+        long size() {
+            return size;
+        }
+
+        /**
+         * Write the full tail block to a new segment file.
+         * @throws IOException If the segment cannot be written
+         */
+        private void spill() throws IOException {
+            Path segment = Files.createTempFile(workFolder, "queue_", ".bin");
+            segments.add(segment);
+            if (transfer == null) {
+                transfer = ByteBuffer.allocateDirect(queueBlock * 8).order(ByteOrder.nativeOrder());
+            }
+            transfer.clear();
+            transfer.asLongBuffer().put(tail);
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                while (transfer.hasRemaining()) {
+                    channel.write(transfer);
+                }
+            }
+        }
+
+        /**
+         * Read a segment file into the head block.
+         * @param segment The number of the segment
+         * @throws IOException If the segment cannot be read
+         */
+        private void load(int segment) throws IOException {
+            transfer.clear();
+            try (FileChannel channel = FileChannel.open(segments.get(segment), StandardOpenOption.READ)) {
+                while (transfer.hasRemaining()) {
+                    if (channel.read(transfer) < 0) {
+                        throw new IOException("Queue segment " + segments.get(segment) + " is truncated");
+                    }
+                }
+            }
+            transfer.flip();
+            transfer.asLongBuffer().get(head);
+            headSegment = segment;
+        }
+
+        /**
+         * Delete the segment files.
+         * @throws IOException If a segment cannot be deleted
+         */
+        @Override
+        public void close() throws IOException {
+            for (Path segment : segments) {
+                Files.deleteIfExists(segment);
+            }
+        }
+    }
+}
@@ -0,0 +1,438 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class runs a level-synchronous BFS split across a fork-join pool, for mazes too large for one core.
+ * Every level of the BFS is expanded in parallel chunks, either top-down, where the cells of the frontier claim the cells
+ * they slide to with atomic operations on a visited bitset, or bottom-up, where every unvisited cell looks for a frontier
+ * cell that slides into it. Bottom-up is used while the frontier is large compared to the cells left to visit.
+ * To return exactly the path BFSAlgorithm returns, every new cell keeps the smallest (frontier position, direction) pair
+ * that reaches it, which is the move the sequential queue would have found first, and every level is sorted by that pair.
+ */
+public class ParallelBFS implements AutoCloseable {
+    private static final VarHandle intElements = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle longElements = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Expand a level bottom-up once the frontier is larger than the unvisited cells divided by this ratio
+    private static final int bottomUpRatio = 16;
+    // Smallest number of items worth giving a task of its own
+    private static final int minimumChunk = 1024;
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+
+    private long searchTimeNanos;
+    private int topDownLevels;
+    private int bottomUpLevels;
+
+    // Per-search state, indexed by row * columns + column
+    private MazeGrid grid;
+    private SlideScanner slideScanner;
+    private int columns;
+    private int cells;
+    private int endRow;
+    private int endColumn;
+    private int endCell;
+    private int startCell;
+    private long[] visited;
+    private long[] next;
+    private long[] frontierBits;
+    // Holds the move key of a cell while its level is built, then the cell it was reached from
+    private int[] parent;
+    private byte[] dirTo;
+    private int[] rank;
+    private int lastEndCell = -1;
+
+    /**
+     * Create a parallel BFS with its own fork-join pool.
+     * @param parallelism The number of threads to use
+     */
+    public ParallelBFS(int parallelism) {
+        this.parallelism = parallelism;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Finds the shortest path from start position to end position in a bit-packed maze.
+     * @param grid          The bit-packed maze
+     * @param mazeStartPos  The starting position in the maze. mazeStartPos[0] represents the row and mazeStartPos[1] represents the column.
+     * @param mazeEndPos    The ending position in the maze. mazeEndPos[0] represents the row and mazeEndPos[1] represents the column.
+     * @return The shortest path, the same one BFSAlgorithm returns
+     */
+    public String shortestDistance(MazeGrid grid, int[] mazeStartPos, int[] mazeEndPos) {
+        solve(grid, new SlideScanner(grid), mazeStartPos, mazeEndPos);
+        return getPath();
+    }
+
+    /**
+     * Run the search without building the path text.
+     * @param grid          The bit-packed maze
+     * @param slideScanner  The slide scanner of the maze
+     * @param mazeStartPos  The starting position in the maze
+     * @param mazeEndPos    The ending position in the maze
+     * @return true if a path was found, otherwise false
+     */
+    public boolean solve(MazeGrid grid, SlideScanner slideScanner, int[] mazeStartPos, int[] mazeEndPos) {
+        long searchStart = System.nanoTime();
+        this.grid = grid;
+        this.slideScanner = slideScanner;
+        this.columns = grid.getColumns();
+        this.cells = grid.getRows() * columns;
+        this.endRow = mazeEndPos[0];
+        this.endColumn = mazeEndPos[1];
+        this.endCell = endRow * columns + endColumn;
+        this.startCell = mazeStartPos[0] * columns + mazeStartPos[1];
+        prepare();
+        topDownLevels = 0;
+        bottomUpLevels = 0;
+        lastEndCell = -1;
+
+        visited[startCell >>> 6] |= 1L << startCell;
+        parent[startCell] = -1;
+        int[] level = {startCell};
+        long visitedCount = 1;
+        boolean bottomUp = false;
+
+        while (startCell != endCell && level.length > 0) {
+            int[] frontier = level;
+            int[] found;
+            if (bottomUp) {
+                bottomUpLevels++;
+                found = runChunks((cells + 63) >>> 6, (from, to, out) -> expandBottomUp(from, to, out));
+                runChunks(frontier.length, (from, to, out) -> clearFrontier(frontier, from, to));
+            } else {
+                topDownLevels++;
+                found = runChunks(frontier.length, (from, to, out) -> expandTopDown(frontier, from, to, out));
+            }
+
+            // Order the new level the way the sequential queue would have, by the move that found each cell first
+            long[] keyed = new long[found.length];
+            for (int i = 0; i < found.length; i++) {
+                keyed[i] = ((long) parent[found[i]] << 32) | found[i];
+            }
+            Arrays.parallelSort(keyed);
+            level = new int[found.length];
+            for (int i = 0; i < keyed.length; i++) {
+                level[i] = (int) keyed[i];
+            }
+            visitedCount += level.length;
+
+            // Decide how the next level is expanded, bottom-up needs the frontier as a bitset with ranks
+            bottomUp = (long) level.length * bottomUpRatio > cells - visitedCount;
+            boolean markFrontier = bottomUp;
+            if (markFrontier && rank == null) {
+                rank = new int[parent.length];
+            }
+            int[] newLevel = level;
+            runChunks(newLevel.length, (from, to, out) -> settleLevel(frontier, newLevel, from, to, markFrontier));
+
+            if (isSet(visited, endCell)) {
+                lastEndCell = endCell;
+                break;
+            }
+        }
+        if (startCell == endCell) {
+            lastEndCell = endCell;
+        }
+        searchTimeNanos = System.nanoTime() - searchStart;
+        return lastEndCell >= 0;
+    }
+
+    /**
+     * Expand part of the frontier top-down.
+     * @param frontier The cells of the frontier in queue order
+     * @param from     The first frontier position to expand
+     * @param to       The position after the last one to expand
+     * @param out      The list the newly claimed cells are added to
+     */
+    private void expandTopDown(int[] frontier, int from, int to, CellList out) {
+        for (int index = from; index < to; index++) {
+            int cell = frontier[index];
+            int row = cell / columns;
+            int column = cell - row * columns;
+            for (int i = 0; i < BFSAlgorithm.movableCoordinates.length; i++) {
+                int stop = slideScanner.stopOf(i, row, column, endRow, endColumn);
+                // The visited bits only change between levels, so a plain read is safe here
+                if (isSet(visited, stop)) {
+                    continue;
+                }
+                long mask = 1L << stop;
+                long old = (long) longElements.getAndBitwiseOr(next, stop >>> 6, mask);
+                if ((old & mask) == 0) {
+                    out.add(stop);
+                }
+                // Keep the smallest move key, which is the move the sequential queue makes first
+                int key = index * 4 + i;
+                int current = (int) intElements.getVolatile(parent, stop);
+                while (key < current && !intElements.compareAndSet(parent, stop, current, key)) {
+                    current = (int) intElements.getVolatile(parent, stop);
+                }
+            }
+        }
+    }
+
+    /**
+     * Expand a range of the maze bottom-up, every unvisited cell looking for the frontier cells that slide into it.
+     * The range is a range of whole words, so no other task touches its bits.
+     * @param fromWord The first word of the range
+     * @param toWord   The word after the last one of the range
+     * @param out      The list the newly reached cells are added to
+     */
+    private void expandBottomUp(int fromWord, int toWord, CellList out) {
+        int last = Math.min(toWord << 6, cells);
+        for (int cell = fromWord << 6; cell < last; cell++) {
+            if (isSet(visited, cell)) {
+                continue;
+            }
+            int row = cell / columns;
+            int column = cell - row * columns;
+            if (grid.isWall(row, column)) {
+                continue;
+            }
+            int best = Integer.MAX_VALUE;
+            for (int i = 0; i < BFSAlgorithm.movableCoordinates.length; i++) {
+                int rowStep = BFSAlgorithm.movableCoordinates[i][0];
+                int columnStep = BFSAlgorithm.movableCoordinates[i][1];
+                // A slide in this direction only stops here at a wall or on the end position
+                if (cell != endCell && !grid.isWall(row + rowStep, column + columnStep)) {
+                    continue;
+                }
+                int fromRow = row - rowStep;
+                int fromColumn = column - columnStep;
+                while (!grid.isWall(fromRow, fromColumn)) {
+                    int from = fromRow * columns + fromColumn;
+                    if (isSet(frontierBits, from)) {
+                        best = Math.min(best, rank[from] * 4 + i);
+                    }
+                    if (from == endCell) {
+                        break;
+                    }
+                    fromRow -= rowStep;
+                    fromColumn -= columnStep;
+                }
+            }
+            if (best != Integer.MAX_VALUE) {
+                parent[cell] = best;
+                next[cell >>> 6] |= 1L << cell;
+                out.add(cell);
+            }
+        }
+    }
+
+    /**
+     * Turn the move keys of part of a new level into parent links and move its cells from the next bits to the visited bits.
+     * @param frontier     The cells of the level that was expanded
+     * @param level        The cells of the new level in queue order
+     * @param from         The first position of the new level to settle
+     * @param to           The position after the last one to settle
+     * @param markFrontier true to also record the new level as a bitset with ranks for a bottom-up expansion
+     */
+    private void settleLevel(int[] frontier, int[] level, int from, int to, boolean markFrontier) {
+        for (int index = from; index < to; index++) {
+            int cell = level[index];
+            int key = parent[cell];
+            parent[cell] = frontier[key >>> 2];
+            dirTo[cell] = (byte) (key & 3);
+            long mask = 1L << cell;
+            longElements.getAndBitwiseOr(visited, cell >>> 6, mask);
+            longElements.getAndBitwiseAnd(next, cell >>> 6, ~mask);
+            if (markFrontier) {
+                rank[cell] = index;
+                longElements.getAndBitwiseOr(frontierBits, cell >>> 6, mask);
+            }
+        }
+    }
+
+    /**
+     * Clear the frontier bits of part of a level after its bottom-up expansion.
+     * @param frontier The cells of the level
+     * @param from     The first position to clear
+     * @param to       The position after the last one to clear
+     */
+    private void clearFrontier(int[] frontier, int from, int to) {
+        for (int index = from; index < to; index++) {
+            int cell = frontier[index];
+            longElements.getAndBitwiseAnd(frontierBits, cell >>> 6, ~(1L << cell));
+        }
+    }
+
+    /**
+     * Split a range of items into chunks and run them on the pool, collecting the cells every chunk adds.
+     * @param items The number of items
+     * @param task  The work of one chunk
+     * @return The cells added by all chunks
+     */
+    private int[] runChunks(int items, ChunkTask task) {
+        int chunks = Math.max(1, Math.min(parallelism * 4, (items + minimumChunk - 1) / minimumChunk));
+        if (chunks == 1) {
+            // Small levels are common in narrow mazes and not worth handing to the pool
+            CellList out = new CellList();
+            task.run(0, items, out);
+            return Arrays.copyOf(out.cells, out.size);
+        }
+        int chunkSize = (items + chunks - 1) / chunks;
+        List<Callable<CellList>> work = new ArrayList<>(chunks);
+        for (int from = 0; from < items; from += chunkSize) {
+            int start = from;
+            int end = Math.min(items, from + chunkSize);
+            work.add(() -> {
+                CellList out = new CellList();
+                task.run(start, end, out);
+                return out;
+            });
+        }
+        List<CellList> results = new ArrayList<>(work.size());
+        try {
+            for (Future<CellList> future : pool.invokeAll(work)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel BFS was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parallel BFS failed", e.getCause());
+        }
+
+        int total = 0;
+        for (CellList result : results) {
+            total += result.size;
+        }
+        int[] merged = new int[total];
+        int offset = 0;
+        for (CellList result : results) {
+            System.arraycopy(result.cells, 0, merged, offset, result.size);
+            offset += result.size;
+        }
+        return merged;
+    }
+
+    /**
+     * Allocate the per-search state for the current maze.
+     */
+    private void prepare() {
+        int words = (cells + 63) >>> 6;
+        if (parent == null || parent.length < cells) {
+            parent = new int[cells];
+            dirTo = new byte[cells];
+            visited = new long[words];
+            next = new long[words];
+            frontierBits = new long[words];
+            rank = null;
+        } else {
+            Arrays.fill(visited, 0, words, 0L);
+            Arrays.fill(next, 0, words, 0L);
+            Arrays.fill(frontierBits, 0, words, 0L);
+        }
+        // Unclaimed cells hold the largest key, so any move key replaces it
+        Arrays.fill(parent, 0, cells, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Check a bit of a bitset.
+     * @param bits The bitset
+     * @param cell The index of the bit
+     * @return true if the bit is set, otherwise false
+     */
+    private static boolean isSet(long[] bits, int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Get the path found by the last search.
+     * @return The path in the format "Start at: (x, y)" followed by one numbered move per line, or a message if no path was found
+     */
+    public String getPath() {
+        if (lastEndCell < 0) {
+            return "No path was found!";
+        }
+        int steps = getSteps();
+        int[] pathCells = new int[steps];
+        byte[] directions = new byte[steps];
+        int index = steps;
+        for (int cell = lastEndCell; cell != startCell; cell = parent[cell]) {
+            pathCells[--index] = cell;
+            directions[index] = dirTo[cell];
+        }
+        return BFSAlgorithm.formatPath(startCell, pathCells, directions, steps, columns);
+    }
+
+    /**
+     * Get the number of moves on the path found by the last search.
+     * @return The number of moves, or -1 if no path was found
+     */
+    public int getSteps() {
+        if (lastEndCell < 0) {
+            return -1;
+        }
+        int steps = 0;
+        for (int cell = lastEndCell; cell != startCell; cell = parent[cell]) {
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * Get the number of levels expanded top-down during the last search.
+     * @return The number of top-down levels
+     */
+    public int getTopDownLevels() {
+        return topDownLevels;
+    }
+
+    /**
+     * Get the number of levels expanded bottom-up during the last search.
+     * @return The number of bottom-up levels
+     */
+    public int getBottomUpLevels() {
+        return bottomUpLevels;
+    }
+
+    /**
+     * Get the time spent searching during the last search.
+     * @return The search time in nanoseconds
+     */
+    public long getSearchTimeNanos() {
+        return searchTimeNanos;
+    }
+
+    /**
+     * Shut down the fork-join pool.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * The work of one chunk of a level.
+     */
+    interface ChunkTask {
+        void run(int from, int to, CellList out);
+    }
+
+    /**
+     * A growable list of cells filled by one task.
+     */
+    static class CellList {
+        int[] cells = new int[64];
+        int size;
+
+        /**
+         * Add a cell to the end of the list.
+         * @param cell The index of the cell
+         */
+        void add(int cell) {
+            if (size == cells.length) {
+                cells = Arrays.copyOf(cells, size * 2);
+            }
+            cells[size++] = cell;
+        }
+    }
+}
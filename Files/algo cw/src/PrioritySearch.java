@@ -0,0 +1,311 @@
+import java.util.Arrays;
+
+/**
+ * This class finds the best path with a priority-queue search, either A* or Dijkstra.
+ * Unlike BFSAlgorithm, which only minimises the number of moves, it can also minimise the number of cells travelled,
+ * or the number of moves with the cells travelled as a tie-breaker.
+ * The queue is a binary heap over primitive arrays, and A* uses a lower bound on the remaining cost:
+ * 0, 1 or 2 moves depending on whether the cell shares a row or a column with the end position,
+ * and the Manhattan distance to the end position for the cells travelled.
+ */
+public class PrioritySearch {
+
+    /**
+     * The cost a search minimises.
+     */
+    public enum Objective {
+        // The number of moves, as BFSAlgorithm does
+        MOVES,
+        // The number of cells travelled
+        CELLS_TRAVELLED,
+        // The number of moves, then the number of cells travelled among the paths with the fewest moves
+        MOVES_THEN_CELLS_TRAVELLED
+    }
+
+    // Moves are weighted above any possible number of cells travelled when both are minimised
+    private static final long moveWeight = 1L << 32;
+
+    private final Objective objective;
+    private final boolean useHeuristic;
+    private long nodesExpanded;
+    private long searchTimeNanos;
+
+    // Scratch buffers indexed by row * columns + column, kept between searches
+    private long[] cost = new long[0];
+    private int[] parent = new int[0];
+    private byte[] dirTo = new byte[0];
+    private long[] closed = new long[0];
+
+    // Binary heap of cells ordered by their estimated total cost
+    private long[] heapKeys = new long[16];
+    private int[] heapCells = new int[16];
+    private int heapSize;
+
+    // The outcome of the last search, the end cell is -1 when no path was found
+    private int lastStartCell = -1;
+    private int lastEndCell = -1;
+    private int lastColumns;
+
+    /**
+     * Create an A* search.
+     * @param objective The cost to minimise
+     */
+    public PrioritySearch(Objective objective) {
+        this(objective, true);
+    }
+
+    /**
+     * Create a priority-queue search.
+     * @param objective    The cost to minimise
+     * @param useHeuristic true for A*, false for Dijkstra
+     */
+    public PrioritySearch(Objective objective, boolean useHeuristic) {
+        this.objective = objective;
+        this.useHeuristic = useHeuristic;
+    }
+
+    /**
+     * Finds the best path from start position to end position in a bit-packed maze.
+     * @param grid          The bit-packed maze
+     * @param mazeStartPos  The starting position in the maze. mazeStartPos[0] represents the row and mazeStartPos[1] represents the column.
+     * @param mazeEndPos    The ending position in the maze. mazeEndPos[0] represents the row and mazeEndPos[1] represents the column.
+     * @return The best path from start to end position in the maze
+     */
+    public String shortestDistance(MazeGrid grid, int[] mazeStartPos, int[] mazeEndPos) {
+        solve(new SlideTable(grid), mazeStartPos, mazeEndPos);
+        return getPath();
+    }
+
+    /**
+     * Run the search without building the path text.
+     * @param slideTable    The slide table of the maze
+     * @param mazeStartPos  The starting position in the maze
+     * @param mazeEndPos    The ending position in the maze
+     * @return true if a path was found, otherwise false
+     */
+    public boolean solve(SlideTable slideTable, int[] mazeStartPos, int[] mazeEndPos) {
+        long searchStart = System.nanoTime();
+        int columns = slideTable.getColumns();
+        int endRow = mazeEndPos[0];
+        int endColumn = mazeEndPos[1];
+        int endCell = endRow * columns + endColumn;
+        int startCell = mazeStartPos[0] * columns + mazeStartPos[1];
+        prepare(slideTable.getRows() * columns);
+        nodesExpanded = 0;
+        lastColumns = columns;
+        lastStartCell = startCell;
+        lastEndCell = -1;
+
+        cost[startCell] = 0;
+        parent[startCell] = -1;
+        push(estimate(startCell, columns, endRow, endColumn), startCell);
+
+        while (heapSize > 0) {
+            int cell = pop();
+            // A cell can be queued more than once, only its first removal counts
+            if ((closed[cell >>> 6] & (1L << cell)) != 0) {
+                continue;
+            }
+            closed[cell >>> 6] |= 1L << cell;
+            nodesExpanded++;
+            if (cell == endCell) {
+                lastEndCell = cell;
+                break;
+            }
+
+            int row = cell / columns;
+            int column = cell - row * columns;
+            for (int i = 0; i < BFSAlgorithm.movableCoordinates.length; i++) {
+                int stop = slideTable.stopOf(i, cell, endRow, endColumn);
+                if (stop == cell || (closed[stop >>> 6] & (1L << stop)) != 0) {
+                    continue;
+                }
+                int stopRow = stop / columns;
+                long travelled = Math.abs(stopRow - row) + Math.abs(stop - stopRow * columns - column);
+                long next = cost[cell] + moveCost(travelled);
+                if (next < cost[stop]) {
+                    cost[stop] = next;
+                    parent[stop] = cell;
+                    dirTo[stop] = (byte) i;
+                    push(next + estimate(stop, columns, endRow, endColumn), stop);
+                }
+            }
+        }
+        heapSize = 0;
+        searchTimeNanos = System.nanoTime() - searchStart;
+        return lastEndCell >= 0;
+    }
+
+    /**
+     * Get the cost of one move under the objective.
+     * @param travelled The number of cells the move travels
+     * @return The cost of the move
+     */
+    private long moveCost(long travelled) {
+        return switch (objective) {
+            case MOVES -> 1;
+            case CELLS_TRAVELLED -> travelled;
+            case MOVES_THEN_CELLS_TRAVELLED -> moveWeight + travelled;
+        };
+    }
+
+    /**
+     * Get a lower bound on the cost from a cell to the end position under the objective.
+     * A cell outside the row and column of the end position needs at least two moves, since a move changes only one of them.
+     * @param cell      The index of the cell
+     * @param columns   The number of columns in the maze
+     * @param endRow    The row of the ending position
+     * @param endColumn The column of the ending position
+     * @return The lower bound, 0 for Dijkstra
+     */
+    private long estimate(int cell, int columns, int endRow, int endColumn) {
+        if (!useHeuristic) {
+            return 0;
+        }
+        int row = cell / columns;
+        int column = cell - row * columns;
+        long moves = (row != endRow ? 1 : 0) + (column != endColumn ? 1 : 0);
+        long travelled = Math.abs(row - endRow) + Math.abs(column - endColumn);
+        return switch (objective) {
+            case MOVES -> moves;
+            case CELLS_TRAVELLED -> travelled;
+            case MOVES_THEN_CELLS_TRAVELLED -> moves * moveWeight + travelled;
+        };
+    }
+
+    /**
+     * Make sure the scratch buffers can hold a maze of the given size and reset the costs.
+     * @param cells The number of cells in the maze
+     */
+    private void prepare(int cells) {
+        if (cost.length < cells) {
+            cost = new long[cells];
+            parent = new int[cells];
+            dirTo = new byte[cells];
+            closed = new long[(cells + 63) >>> 6];
+        } else {
+            Arrays.fill(closed, 0, (cells + 63) >>> 6, 0L);
+        }
+        Arrays.fill(cost, 0, cells, Long.MAX_VALUE);
+        heapSize = 0;
+    }
+
+    /**
+     * Add a cell to the heap.
+     * @param key  The estimated total cost of the cell
+     * @param cell The index of the cell
+     */
+    private void push(long key, int cell) {
+        if (heapSize == heapKeys.length) {
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+            heapCells = Arrays.copyOf(heapCells, heapSize * 2);
+        }
+        // Sift the new entry up to its place
+        int index = heapSize++;
+        while (index > 0) {
+            int parentIndex = (index - 1) >>> 1;
+            if (heapKeys[parentIndex] <= key) {
+                break;
+            }
+            heapKeys[index] = heapKeys[parentIndex];
+            heapCells[index] = heapCells[parentIndex];
+            index = parentIndex;
+        }
+        heapKeys[index] = key;
+        heapCells[index] = cell;
+    }
+
+    /**
+     * Remove the cell with the lowest estimated total cost from the heap.
+     * @return The index of the cell
+     */
+    private int pop() {
+        int top = heapCells[0];
+        long key = heapKeys[--heapSize];
+        int cell = heapCells[heapSize];
+        // Sift the last entry down from the root
+        int index = 0;
+        int half = heapSize >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (key <= heapKeys[child]) {
+                break;
+            }
+            heapKeys[index] = heapKeys[child];
+            heapCells[index] = heapCells[child];
+            index = child;
+        }
+        heapKeys[index] = key;
+        heapCells[index] = cell;
+        return top;
+    }
+
+    /**
+     * Get the path found by the last search.
+     * @return The path in the format "Start at: (x, y)" followed by one numbered move per line, or a message if no path was found
+     */
+    public String getPath() {
+        if (lastEndCell < 0) {
+            return "No path was found!";
+        }
+        int steps = getSteps();
+        int[] cells = new int[steps];
+        byte[] directions = new byte[steps];
+        int index = steps;
+        for (int cell = lastEndCell; cell != lastStartCell; cell = parent[cell]) {
+            cells[--index] = cell;
+            directions[index] = dirTo[cell];
+        }
+        return BFSAlgorithm.formatPath(lastStartCell, cells, directions, steps, lastColumns);
+    }
+
+    /**
+     * Get the number of moves on the path found by the last search.
+     * @return The number of moves, or -1 if no path was found
+     */
+    public int getSteps() {
+        if (lastEndCell < 0) {
+            return -1;
+        }
+        int steps = 0;
+        for (int cell = lastEndCell; cell != lastStartCell; cell = parent[cell]) {
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * Get the number of cells travelled along the path found by the last search.
+     * @return The number of cells travelled, or -1 if no path was found
+     */
+    public long getCellsTravelled() {
+        if (lastEndCell < 0) {
+            return -1;
+        }
+        long travelled = 0;
+        for (int cell = lastEndCell; cell != lastStartCell; cell = parent[cell]) {
+            int from = parent[cell];
+            travelled += Math.abs(cell / lastColumns - from / lastColumns) + Math.abs(cell % lastColumns - from % lastColumns);
+        }
+        return travelled;
+    }
+
+    /**
+     * Get the number of cells expanded during the last search.
+     * @return The number of expanded cells
+     */
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /**
+     * Get the time spent searching during the last search.
+     * @return The search time in nanoseconds
+     */
+    public long getSearchTimeNanos() {
+        return searchTimeNanos;
+    }
+}
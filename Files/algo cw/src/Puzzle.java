@@ -1,21 +1,25 @@
 import java.awt.*;
 import java.io.*;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.util.ArrayList;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 
 /**
  * This class represents a Puzzle, which can be loaded from a text file.
  */
 public class Puzzle {
-    private final ArrayList<String> lines = new ArrayList<>();
     private boolean isFileRead;
     private int[] startPoint;
     private int[] endPoint;
-    private int[][] maze;
+    // Row-major cells of every ending position in file order, the first one is endPoint
+    private int[] targetCells;
+    private TargetSet targets;
+    private MazeGrid maze;
     private boolean isLoaded;
     private File inputFile;
+    private long parseTimeNanos;
 
     /**
      * Read a puzzle file using a file dialog.
@@ -38,6 +42,15 @@ public class Puzzle {
     }
 
 
+    /**
+     * Read a puzzle file from a given path without opening a file dialog.
+     * @param file The puzzle file
+     */
+    public void readFile(File file) {
+        this.inputFile = file;
+        this.isFileRead = true;
+    }
+
     /**
      * Check for errors in the selected file.
      * @param fileDialog The file dialog window
@@ -56,50 +69,166 @@ public class Puzzle {
         if (inputFile.length() == 0) throw new Exception("Hasn't selected a file");
     }
 
+    /**
+     * Load a puzzle from a given path without opening a file dialog.
+     * @param path The puzzle file
+     * @return The loaded puzzle
+     * @throws IOException If the file cannot be read or is not a valid puzzle
+     */
+    public static Puzzle load(Path path) throws IOException {
+        // Binary mazes skip the text parse altogether
+        if (path.getFileName().toString().endsWith(MazeFile.extension)) {
+            return MazeFile.read(path);
+        }
+        Puzzle puzzle = new Puzzle();
+        puzzle.readFile(path.toFile());
+        puzzle.loadPuzzles();
+        return puzzle;
+    }
+
+    /**
+     * Create a loaded puzzle from a grid that was not parsed from text, such as a binary maze file.
+     * @param file  The file the puzzle came from
+     * @param grid  The bit-packed maze
+     * @param start The starting position as {row, column}
+     * @param end   The ending position as {row, column}
+     * @return The loaded puzzle
+     */
+    static Puzzle of(File file, MazeGrid grid, int[] start, int[] end) {
+        return withTargets(file, grid, start, new int[]{end[0] * grid.getColumns() + end[1]});
+    }
+
+    /**
+     * Create a loaded puzzle with one or more ending positions from a grid that was not parsed from text.
+     * @param file        The file the puzzle came from
+     * @param grid        The bit-packed maze
+     * @param start       The starting position as {row, column}
+     * @param targetCells The row-major cells of the ending positions in ascending order, the first one is getEndingPos()
+     * @return The loaded puzzle
+     */
+    static Puzzle withTargets(File file, MazeGrid grid, int[] start, int[] targetCells) {
+        Puzzle puzzle = new Puzzle();
+        puzzle.readFile(file);
+        puzzle.maze = grid;
+        puzzle.startPoint = start;
+        puzzle.endPoint = new int[]{targetCells[0] / grid.getColumns(), targetCells[0] % grid.getColumns()};
+        puzzle.targetCells = targetCells;
+        puzzle.isLoaded = true;
+        return puzzle;
+    }
+
     /**
      * Load the puzzle from the selected file.
+     * @throws IOException If the file cannot be read or is not a valid puzzle
      */
-    public void loadPuzzles() {
-        ArrayList<String> lines = this.getLines();
-        int columnSize = lines.get(0).trim().length();
-        this.maze = new int[lines.size()][columnSize];
-
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i);
-            int[] floor = new int[columnSize];
-
-            for (int n = 0; n < columnSize; n++) {
-                char charr = line.charAt(n);
-
-                // Assign values to the maze based on characters in the file
-                switch (charr) {
-                    case '0' -> floor[n] = 1; // Wall
-                    case '.' -> floor[n] = 0; // Empty space
-                    case 'S' -> {
-                        startPoint = new int[]{i, n}; // Start point
-                        floor[n] = 0;
-                    }
-                    case 'F' -> {
-                        endPoint = new int[]{i, n}; // End point
-                        floor[n] = 0;
-                    }
-                }
-            }
-            maze[i] = floor;
+    public void loadPuzzles() throws IOException {
+        if (!this.isFileRead) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            parse(channel.size(), () -> channel.position(0));
+        }
+    }
+
+    /**
+     * Load a puzzle from text held in memory, such as the body of a request, without a file.
+     * @param name The name the puzzle is reported under
+     * @param text The puzzle in the text format
+     * @return The loaded puzzle
+     * @throws IOException If the text is not a valid puzzle
+     */
+    public static Puzzle parse(String name, byte[] text) throws IOException {
+        Puzzle puzzle = new Puzzle();
+        puzzle.readFile(new File(name));
+        puzzle.parse(text.length, () -> Channels.newChannel(new ByteArrayInputStream(text)));
+        return puzzle;
+    }
+
+    /**
+     * Parse the text of a puzzle. The text is streamed twice through a fixed-size buffer, once to measure
+     * the first line and once straight into the bit-packed grid, so no copy of its lines is kept in memory.
+     * @param fileSize The length of the text in bytes
+     * @param source   The text
+     * @throws IOException If the text cannot be read or is not a valid puzzle
+     */
+    private void parse(long fileSize, PuzzleTextReader.TextSource source) throws IOException {
+        long parseStart = System.nanoTime();
+        PuzzleLoadEvent event = SolveStats.isFlightRecorderRunning() ? new PuzzleLoadEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        PuzzleTextReader reader = new PuzzleTextReader(fileSize, source);
+        long rowCount = reader.getRowCount();
+        int columnSize = reader.getColumns();
+        if ((rowCount + 2) * (((long) columnSize + 2 + 63) >>> 6) > Integer.MAX_VALUE) {
+            throw new IOException("The puzzle is too large to load: " + rowCount + " x " + columnSize);
+        }
+        MazeGrid grid = new MazeGrid((int) rowCount, columnSize);
+
+        // Copy every row into the grid below its top border row
+        long[] words = grid.getWords();
+        int stride = grid.getStride();
+        reader.read((row, rowWords) -> System.arraycopy(rowWords, 0, words, (row + 1) * stride, stride));
+
+        this.maze = grid;
+        this.startPoint = reader.getStart();
+        this.endPoint = reader.getEnd();
+        this.targetCells = reader.getTargetCells();
+        this.targets = null;
+        this.isLoaded = true;
+        this.parseTimeNanos = System.nanoTime() - parseStart;
+
+        if (event != null && event.shouldCommit()) {
+            event.file = inputFile.getPath();
+            event.fileSize = fileSize;
+            event.rows = grid.getRows();
+            event.columns = grid.getColumns();
+            event.commit();
         }
     }
 
     /**
-     * Get the loaded puzzle.
+     * Create the exception for an error in the puzzle file.
+     * @param row     The zero-based row where the error was found
+     * @param column  The zero-based column where the error was found
+     * @param message The description of the error
+     * @return The exception, with one-based line and column numbers in its message
+     */
+    static IOException parseError(int row, int column, String message) {
+        return new IOException("Line " + (row + 1) + ", column " + (column + 1) + ": " + message);
+    }
+
+    /**
+     * Get the loaded puzzle as a 2D array where 0 represents an empty cell and 1 represents an obstacle.
+     * The array is unpacked from the bit-packed grid on every call, use getGrid() to avoid the copy.
      * @return The loaded puzzle
      */
     public int[][] getPuzzle() {
+        if (isPuzzleLoaded()) {
+            return this.maze.toArray();
+        }
+        return null;
+    }
+
+    /**
+     * Get the loaded puzzle as a bit-packed grid.
+     * @return The loaded puzzle
+     */
+    public MazeGrid getGrid() {
         if (isPuzzleLoaded()) {
             return this.maze;
         }
         return null;
     }
 
+    /**
+     * Get the time the last loadPuzzles() call spent parsing the file.
+     * @return The parse time in nanoseconds, 0 if the puzzle was not parsed from text
+     */
+    public long getParseTimeNanos() {
+        return this.parseTimeNanos;
+    }
+
     /**
      * Check if a file has been read.
      * @return true if a file has been read, otherwise false
@@ -142,14 +271,34 @@ public class Puzzle {
     }
 
     /**
-     * Load lines from the file.
-     * @throws IOException If there is an error reading the file
+     * Get every ending position of the puzzle. A slide passing through any of them stops on it.
+     * @return The ending positions, or null if no puzzle is loaded
      */
-    public void loadLines() throws IOException {
-        if (this.isFileRead) {
-            lines.addAll(Files.readAllLines(inputFile.toPath(), Charset.defaultCharset()));
-            this.isLoaded = true;
+    public TargetSet getTargets() {
+        if (!Boolean.TRUE.equals(isPuzzleLoaded())) {
+            return null;
+        }
+        // Built on first use, so puzzles with one ending position never pay for the target bits
+        if (targets == null) {
+            targets = new TargetSet(maze.getRows(), maze.getColumns(), targetCells);
         }
+        return targets;
+    }
+
+    /**
+     * Get the number of ending positions of the puzzle.
+     * @return The number of ending positions, 0 if no puzzle is loaded
+     */
+    public int getTargetCount() {
+        return Boolean.TRUE.equals(isPuzzleLoaded()) ? targetCells.length : 0;
+    }
+
+    /**
+     * Get the row-major cells of every ending position in ascending order.
+     * @return The cells, shared with the puzzle
+     */
+    int[] getTargetCells() {
+        return targetCells;
     }
 
     /**
@@ -163,15 +312,4 @@ public class Puzzle {
         return null;
     }
 
-    /**
-     * Get the lines from the file.
-     * @return The lines from the file
-     */
-    public ArrayList<String> getLines() {
-        if (this.isFileRead) {
-            return this.lines;
-        }
-        return null;
-    }
-
 }
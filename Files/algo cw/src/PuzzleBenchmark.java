@@ -0,0 +1,211 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * This program benchmarks loading puzzles with Puzzle and solving them with BFSAlgorithm, each measured on its own.
+ * It runs the bundled maze and puzzle files plus larger generated grids, with warm-up iterations before the measured ones,
+ * and reports throughput, average time and allocation rate per operation in the same way the JMH gc profiler does.
+ */
+public class PuzzleBenchmark {
+    private static final String[] bundledFiles = {
+            "maze10_1.txt", "maze15_1.txt", "maze20_1.txt", "maze25_1.txt", "maze30_1.txt",
+            "puzzle_10.txt", "puzzle_20.txt", "puzzle_40.txt", "puzzle_80.txt",
+            "puzzle_160.txt", "puzzle_320.txt", "puzzle_640.txt", "puzzle_1280.txt"};
+
+    private final int warmupIterations;
+    private final int measuredIterations;
+    private final long iterationNanos;
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    // Results are folded in here so the JIT cannot drop the benchmarked work
+    private volatile long sink;
+
+    /**
+     * Create a benchmark.
+     * @param warmupIterations   The number of iterations run before measuring
+     * @param measuredIterations The number of measured iterations
+     * @param iterationMillis    The length of every iteration in milliseconds
+     */
+    public PuzzleBenchmark(int warmupIterations, int measuredIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.iterationNanos = iterationMillis * 1_000_000;
+        this.threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Run the benchmark.
+     * @param args Optional folder holding the puzzle files, "algo cw/PuzzleFiles" by default, followed by the optional flags
+     *             --warmup N, --iterations N, --time MILLIS, --generated SIZE,SIZE,... and --layout NAME,
+     *             which generates the grids with MazeGenerator instead of the fixed random ones
+     */
+    public static void main(String[] args) throws Exception {
+        String folder = "algo cw/PuzzleFiles";
+        int warmup = 3;
+        int iterations = 5;
+        long time = 500;
+        String generated = "2560,5120";
+        MazeGenerator.Layout layout = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+                case "--time" -> time = Long.parseLong(args[++i]);
+                case "--generated" -> generated = args[++i];
+                case "--layout" -> layout = MazeGenerator.Layout.valueOf(args[++i].toUpperCase());
+                default -> folder = args[i];
+            }
+        }
+
+        PuzzleBenchmark benchmark = new PuzzleBenchmark(warmup, iterations, time);
+        System.out.printf("%-24s %-12s %14s %12s %12s %14s%n", "File", "Benchmark", "Ops/s", "Avg (ms)", "Alloc (MB/s)", "Alloc (B/op)");
+        for (String fileName : bundledFiles) {
+            benchmark.run(fileName, new File(folder, fileName).toPath());
+        }
+        if (!generated.isBlank()) {
+            for (String size : generated.split(",")) {
+                Path file = Files.createTempFile("generated_", ".txt");
+                file.toFile().deleteOnExit();
+                int n = Integer.parseInt(size.trim());
+                if (layout == null) {
+                    writeRandomPuzzle(file, n, 42);
+                    benchmark.run("generated_" + n, file);
+                } else {
+                    new MazeGenerator(layout, n, n, MazeGenerator.defaultDensity(layout), 42).write(file);
+                    benchmark.run(layout.name().toLowerCase() + "_" + n, file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Benchmark loading and solving one puzzle file.
+     * @param name The name the results are reported under
+     * @param file The puzzle file
+     * @throws Exception If the file cannot be loaded
+     */
+    public void run(String name, Path file) throws Exception {
+        report(name, "load", measure(() -> Puzzle.load(file).getGrid().getRows()));
+
+        Puzzle puzzle = Puzzle.load(file);
+        for (BFSAlgorithm.SlideMode mode : BFSAlgorithm.SlideMode.values()) {
+            // The solver is kept between operations, like a caller solving many puzzles would
+            BFSAlgorithm solver = new BFSAlgorithm(mode);
+            report(name, "solve-" + mode.name().toLowerCase(), measure(() ->
+                    solver.shortestDistance(puzzle.getGrid(), puzzle.getStartingPos(), puzzle.getEndingPos()).length()));
+        }
+    }
+
+    /**
+     * Run the warm-up and measured iterations of an operation.
+     * @param operation The operation to benchmark
+     * @return The totals of the measured iterations
+     * @throws Exception If the operation fails
+     */
+    private Measurement measure(Operation operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(operation);
+        }
+        Measurement total = new Measurement(0, 0, 0);
+        for (int i = 0; i < measuredIterations; i++) {
+            Measurement measurement = iteration(operation);
+            total = new Measurement(total.operations() + measurement.operations(),
+                    total.nanos() + measurement.nanos(), total.bytes() + measurement.bytes());
+        }
+        return total;
+    }
+
+    /**
+     * Run an operation repeatedly for one iteration.
+     * @param operation The operation to benchmark
+     * @return The operations, time and bytes allocated during the iteration
+     * @throws Exception If the operation fails
+     */
+    private Measurement iteration(Operation operation) throws Exception {
+        long bytesBefore = threadBean.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long deadline = start + iterationNanos;
+        long operations = 0;
+        long now;
+        long result = 0;
+        do {
+            result += operation.run();
+            operations++;
+            now = System.nanoTime();
+        } while (now < deadline);
+        long bytes = threadBean.getCurrentThreadAllocatedBytes() - bytesBefore;
+        sink += result;
+        return new Measurement(operations, now - start, bytes);
+    }
+
+    /**
+     * Print the results of one benchmark.
+     * @param file        The name of the puzzle file
+     * @param benchmark   The name of the benchmark
+     * @param measurement The totals of the measured iterations
+     */
+    private static void report(String file, String benchmark, Measurement measurement) {
+        double seconds = measurement.nanos() / 1e9;
+        System.out.printf("%-24s %-12s %14.1f %12.4f %12.1f %14.0f%n", file, benchmark,
+                measurement.operations() / seconds,
+                measurement.nanos() / 1e6 / measurement.operations(),
+                measurement.bytes() / 1e6 / seconds,
+                (double) measurement.bytes() / measurement.operations());
+    }
+
+    /**
+     * Write a random puzzle with a fixed seed, so every run benchmarks the same grid.
+     * @param file The file to write
+     * @param size The number of rows and columns
+     * @param seed The seed of the random walls and positions
+     * @throws IOException If the file cannot be written
+     */
+    static void writeRandomPuzzle(Path file, int size, long seed) throws IOException {
+        Random random = new Random(seed);
+        int start = random.nextInt(size * size);
+        int end = random.nextInt(size * size);
+        while (end == start) {
+            end = random.nextInt(size * size);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            char[] line = new char[size];
+            for (int row = 0; row < size; row++) {
+                for (int column = 0; column < size; column++) {
+                    int cell = row * size + column;
+                    if (cell == start) {
+                        line[column] = 'S';
+                    } else if (cell == end) {
+                        line[column] = 'F';
+                    } else {
+                        line[column] = random.nextInt(100) < 25 ? '0' : '.';
+                    }
+                }
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * An operation to benchmark, returning a value derived from its result.
+     */
+    interface Operation {
+        long run() throws Exception;
+    }
+
+    /**
+     * The totals of one or more iterations.
+     * @param operations The number of operations run
+     * @param nanos      The time taken in nanoseconds
+     * @param bytes      The bytes allocated on the benchmark thread
+     */
+    record Measurement(long operations, long nanos, long bytes) {
+    }
+}
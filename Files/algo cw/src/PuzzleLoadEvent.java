@@ -0,0 +1,27 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event for parsing one puzzle text file, recorded with -XX:StartFlightRecording.
+ */
+@Name("puzzlemania.PuzzleLoad")
+@Label("Puzzle Load")
+@Category("Puzzle Mania")
+@Description("Parsing a puzzle text file into a MazeGrid")
+public class PuzzleLoadEvent extends jdk.jfr.Event {
+    @Label("File")
+    String file;
+
+    @Label("File Size")
+    @DataAmount
+    long fileSize;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Columns")
+    int columns;
+}
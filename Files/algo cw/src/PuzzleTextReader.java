@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * This class streams the text format of a puzzle one row at a time, checking it as it goes.
+ * The first line is measured when the reader is created, so the size of the maze is known before any row is read,
+ * and every parsed row is handed over as its padded words laid out like a MazeGrid row, border bits included.
+ * Puzzle copies the rows into its grid and MazeFile.convert() writes them straight to a binary maze,
+ * so both check the text the same way with the same messages.
+ */
+class PuzzleTextReader {
+    // Size of the buffer the text is streamed through
+    private static final int bufferSize = 1 << 16;
+
+    private final TextSource source;
+    private final int columnSize;
+    // 1 for lines ending with a line feed, 2 for a carriage return and a line feed
+    private final int lineEnding;
+    private final long rowCount;
+    private int[] start;
+    private int[] end;
+    private int[] targetCells;
+
+    /**
+     * Gives the text of a puzzle from its first byte, as many times as the reader needs it.
+     */
+    interface TextSource {
+        /**
+         * Get a channel positioned at the first byte of the text.
+         * @return The channel
+         * @throws IOException If the text cannot be read
+         */
+        ReadableByteChannel fromStart() throws IOException;
+    }
+
+    /**
+     * Receives the rows of a puzzle one at a time, in order.
+     */
+    interface RowHandler {
+        /**
+         * Handle one row.
+         * @param row   The zero-based row
+         * @param words The padded words of the row, reused for the next row once this call returns
+         * @throws IOException If the row cannot be written
+         */
+        void row(int row, long[] words) throws IOException;
+    }
+
+    /**
+     * Create a reader, measuring the first line of the text to size the maze.
+     * @param fileSize The length of the text in bytes
+     * @param source   The text
+     * @throws IOException If the text cannot be read or its first line has no cells
+     */
+    PuzzleTextReader(long fileSize, TextSource source) throws IOException {
+        this.source = source;
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        ReadableByteChannel channel = source.fromStart();
+
+        // Measure the first line, every other line must match it
+        int columns = 0;
+        int ending = 0;
+        while (ending == 0 && channel.read(buffer) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte charr = buffer.get();
+                if (charr == '\n') {
+                    ending = 1;
+                    break;
+                }
+                if (charr == '\r') {
+                    ending = 2;
+                    break;
+                }
+                columns++;
+            }
+            buffer.clear();
+        }
+        if (columns == 0) {
+            throw new IOException("Line 1: the puzzle has no cells");
+        }
+        // A file of a single line without a line ending counts as ending with a line feed
+        this.columnSize = columns;
+        this.lineEnding = Math.max(ending, 1);
+        long lineLength = columnSize + lineEnding;
+        this.rowCount = fileSize / lineLength + (fileSize % lineLength != 0 ? 1 : 0);
+    }
+
+    /**
+     * Stream the whole text, handing over every row once it has been checked.
+     * The caller checks that the row count suits it first, rows are numbered with an int.
+     * Afterwards the starting and ending positions can be read from the reader.
+     * @param handler Called once per row, in order
+     * @throws IOException If the text cannot be read or is not a valid puzzle, or the handler fails
+     */
+    void read(RowHandler handler) throws IOException {
+        // Kept in locals so the handler call does not force them to be reloaded for every character
+        int columnSize = this.columnSize;
+        int lineEnding = this.lineEnding;
+        long rowCount = this.rowCount;
+        int stride = (columnSize + 2 + 63) >>> 6;
+        // Words of an empty row, with the wall bits on both sides of the maze
+        long[] emptyRow = new long[stride];
+        emptyRow[0] = 1L;
+        for (int bit = columnSize + 1; bit < stride * 64; bit++) {
+            emptyRow[bit >>> 6] |= 1L << bit;
+        }
+        long[] rowWords = emptyRow.clone();
+        int[] start = null;
+        int[] end = null;
+        int[] ends = new int[1];
+        int endCount = 0;
+
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        ReadableByteChannel channel = source.fromStart();
+        int row = 0;
+        int column = 0;
+        boolean carriageReturn = false;
+        while (channel.read(buffer) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte charr = buffer.get();
+                if (carriageReturn && charr != '\n') {
+                    throw Puzzle.parseError(row, column, "expected a line feed after the carriage return");
+                }
+                if (charr == '\n') {
+                    if (lineEnding == 2 && !carriageReturn) {
+                        throw Puzzle.parseError(row, column, "expected a carriage return before the line feed like on line 1");
+                    }
+                    if (column != columnSize) {
+                        throw Puzzle.parseError(row, column, "the line has " + column + " cells but line 1 has " + columnSize);
+                    }
+                    handler.row(row, rowWords);
+                    System.arraycopy(emptyRow, 0, rowWords, 0, stride);
+                    carriageReturn = false;
+                    row++;
+                    column = 0;
+                    continue;
+                }
+                if (charr == '\r') {
+                    if (lineEnding == 1) {
+                        throw Puzzle.parseError(row, column, "unexpected carriage return, line 1 ends with a line feed only");
+                    }
+                    carriageReturn = true;
+                    continue;
+                }
+                if (column >= columnSize) {
+                    throw Puzzle.parseError(row, column, "the line is longer than line 1 (" + columnSize + " cells)");
+                }
+                if (row >= rowCount) {
+                    throw Puzzle.parseError(row, column, "the file has more lines than its size allows, lines have different lengths");
+                }
+
+                // Assign values to the row based on characters in the file
+                switch (charr) {
+                    case '.' -> {
+                        // Empty space
+                    }
+                    case '0' -> rowWords[(column + 1) >>> 6] |= 1L << (column + 1); // Wall
+                    case 'S' -> {
+                        if (start != null) {
+                            throw Puzzle.parseError(row, column, "second starting position, the first one is at line " + (start[0] + 1) + ", column " + (start[1] + 1));
+                        }
+                        start = new int[]{row, column}; // Start point
+                    }
+                    case 'F' -> {
+                        // Every ending position is kept, the first one is the one reported as the end point
+                        if (end == null) {
+                            end = new int[]{row, column}; // End point
+                        }
+                        if (endCount == ends.length) {
+                            ends = Arrays.copyOf(ends, endCount * 2);
+                        }
+                        ends[endCount++] = row * columnSize + column;
+                    }
+                    default -> throw Puzzle.parseError(row, column, "unknown character '" + (char) (charr & 0xff) + "'");
+                }
+                column++;
+            }
+            buffer.clear();
+        }
+        if (carriageReturn) {
+            throw Puzzle.parseError(row, column, "expected a line feed after the carriage return");
+        }
+
+        // The last line may end without a line ending
+        if (column > 0) {
+            if (column != columnSize) {
+                throw Puzzle.parseError(row, column, "the line has " + column + " cells but line 1 has " + columnSize);
+            }
+            handler.row(row, rowWords);
+            row++;
+        }
+        if (row != rowCount) {
+            throw Puzzle.parseError(row, 0, "the file has fewer lines than its size allows, lines have different lengths");
+        }
+        if (start == null) {
+            throw new IOException("The puzzle has no starting position 'S'");
+        }
+        if (end == null) {
+            throw new IOException("The puzzle has no ending position 'F'");
+        }
+        this.start = start;
+        this.end = end;
+        this.targetCells = Arrays.copyOf(ends, endCount);
+    }
+
+    /**
+     * Get the number of rows, counted from the length of the text and of the first line.
+     * @return The number of rows
+     */
+    long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get the number of columns, the length of the first line.
+     * @return The number of columns
+     */
+    int getColumns() {
+        return columnSize;
+    }
+
+    /**
+     * Get the starting position, once the text has been read.
+     * @return The starting position as {row, column}
+     */
+    int[] getStart() {
+        return start;
+    }
+
+    /**
+     * Get the first ending position, once the text has been read.
+     * @return The ending position as {row, column}
+     */
+    int[] getEnd() {
+        return end;
+    }
+
+    /**
+     * Get the row-major cells of every ending position in ascending order, once the text has been read.
+     * @return The cells
+     */
+    int[] getTargetCells() {
+        return targetCells;
+    }
+}
@@ -0,0 +1,67 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This program reports how ParallelBFS scales from one thread up to every processor.
+ * It solves one large puzzle with BFSAlgorithm and then with ParallelBFS at 1, 2, 4, ... threads,
+ * checks that every run returns the same path, and prints the search times and speed-ups.
+ */
+public class ScalingBenchmark {
+    private static final int warmupRuns = 2;
+    private static final int measuredRuns = 5;
+
+    /**
+     * Run the benchmark.
+     * @param args A puzzle file, or the size of a random puzzle to generate, 4000 by default
+     */
+    public static void main(String[] args) throws Exception {
+        Path file;
+        if (args.length > 0 && !args[0].chars().allMatch(Character::isDigit)) {
+            file = Path.of(args[0]);
+        } else {
+            int size = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+            file = Files.createTempFile("scaling_", ".txt");
+            file.toFile().deleteOnExit();
+            PuzzleBenchmark.writeRandomPuzzle(file, size, 42);
+        }
+        Puzzle puzzle = Puzzle.load(file);
+        MazeGrid grid = puzzle.getGrid();
+        int[] start = puzzle.getStartingPos();
+        int[] end = puzzle.getEndingPos();
+        SlideScanner slideScanner = new SlideScanner(grid);
+        System.out.println("Puzzle: " + grid.getRows() + " x " + grid.getColumns());
+
+        // The sequential solver is the baseline every parallel run is compared against
+        BFSAlgorithm sequential = new BFSAlgorithm(BFSAlgorithm.SlideMode.WORD);
+        long sequentialNanos = 0;
+        for (int run = 0; run < warmupRuns + measuredRuns; run++) {
+            sequential.solve(grid, start, end);
+            if (run >= warmupRuns) {
+                sequentialNanos += sequential.getSearchTimeNanos();
+            }
+        }
+        String expected = sequential.getPath();
+        double sequentialMillis = sequentialNanos / 1e6 / measuredRuns;
+        System.out.printf("%-12s %8s %12s %10s %18s%n", "Solver", "Threads", "Search (ms)", "Speed-up", "Levels (td/bu)");
+        System.out.printf("%-12s %8d %12.3f %10.2f %18s%n", "sequential", 1, sequentialMillis, 1.0, "-");
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= processors; threads = threads < processors && threads * 2 > processors ? processors : threads * 2) {
+            try (ParallelBFS parallel = new ParallelBFS(threads)) {
+                long nanos = 0;
+                for (int run = 0; run < warmupRuns + measuredRuns; run++) {
+                    parallel.solve(grid, slideScanner, start, end);
+                    if (run >= warmupRuns) {
+                        nanos += parallel.getSearchTimeNanos();
+                    }
+                }
+                if (!expected.equals(parallel.getPath())) {
+                    throw new IllegalStateException("ParallelBFS with " + threads + " threads found a different path");
+                }
+                double millis = nanos / 1e6 / measuredRuns;
+                System.out.printf("%-12s %8d %12.3f %10.2f %18s%n", "parallel", threads, millis, sequentialMillis / millis,
+                        parallel.getTopDownLevels() + "/" + parallel.getBottomUpLevels());
+            }
+        }
+    }
+}
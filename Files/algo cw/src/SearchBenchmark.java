@@ -0,0 +1,85 @@
+import java.io.File;
+
+/**
+ * This program compares the search strategies on the larger puzzle files.
+ * For every strategy it prints the number of moves found, the cells expanded and the average search time.
+ */
+public class SearchBenchmark {
+    private static final String[] puzzleFiles = {"puzzle_320.txt", "puzzle_640.txt", "puzzle_1280.txt"};
+    private static final int warmupRuns = 5;
+    private static final int measuredRuns = 20;
+
+    /**
+     * Run the benchmark.
+     * @param args Optional folder holding the puzzle files, "algo cw/PuzzleFiles" by default
+     */
+    public static void main(String[] args) throws Exception {
+        File folder = new File(args.length > 0 ? args[0] : "algo cw/PuzzleFiles");
+        System.out.printf("%-16s %-22s %8s %20s %12s%n", "File", "Search", "Moves", "Expanded", "Search (ms)");
+
+        for (String fileName : puzzleFiles) {
+            Puzzle puzzle = Puzzle.load(new File(folder, fileName).toPath());
+            MazeGrid grid = puzzle.getGrid();
+            int[] start = puzzle.getStartingPos();
+            int[] end = puzzle.getEndingPos();
+
+            // Plain BFS from the start position
+            BFSAlgorithm bfs = new BFSAlgorithm(BFSAlgorithm.SlideMode.TABLE);
+            long nanos = 0;
+            for (int run = 0; run < warmupRuns + measuredRuns; run++) {
+                bfs.solve(grid, start, end);
+                if (run >= warmupRuns) {
+                    nanos += bfs.getSearchTimeNanos();
+                }
+            }
+            System.out.printf("%-16s %-22s %8d %20d %12.3f%n", fileName, "bfs", bfs.getSteps(),
+                    bfs.getNodesExpanded(), nanos / 1e6 / measuredRuns);
+
+            // Bidirectional BFS, reporting the cells expanded from each side
+            SlideTable slideTable = new SlideTable(grid);
+            BidirectionalBFS bidirectional = new BidirectionalBFS();
+            nanos = 0;
+            for (int run = 0; run < warmupRuns + measuredRuns; run++) {
+                bidirectional.solve(slideTable, grid, start, end);
+                if (run >= warmupRuns) {
+                    nanos += bidirectional.getSearchTimeNanos();
+                }
+            }
+            if (bidirectional.getSteps() != bfs.getSteps()) {
+                throw new IllegalStateException("Bidirectional BFS found " + bidirectional.getSteps() + " moves for " + fileName + " instead of " + bfs.getSteps());
+            }
+            System.out.printf("%-16s %-22s %8d %20s %12.3f%n", fileName, "bidirectional", bidirectional.getSteps(),
+                    bidirectional.getForwardExpanded() + " + " + bidirectional.getBackwardExpanded(), nanos / 1e6 / measuredRuns);
+
+            // A* and Dijkstra for every objective, A* should expand fewer cells for the same cost
+            for (PrioritySearch.Objective objective : PrioritySearch.Objective.values()) {
+                for (boolean useHeuristic : new boolean[]{true, false}) {
+                    PrioritySearch search = new PrioritySearch(objective, useHeuristic);
+                    nanos = 0;
+                    for (int run = 0; run < warmupRuns + measuredRuns; run++) {
+                        search.solve(slideTable, start, end);
+                        if (run >= warmupRuns) {
+                            nanos += search.getSearchTimeNanos();
+                        }
+                    }
+                    String name = (useHeuristic ? "a*-" : "dijkstra-") + objectiveName(objective);
+                    System.out.printf("%-16s %-22s %8d %20d %12.3f  (%d cells travelled)%n", fileName, name, search.getSteps(),
+                            search.getNodesExpanded(), nanos / 1e6 / measuredRuns, search.getCellsTravelled());
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the short name of an objective for the report.
+     * @param objective The objective
+     * @return The short name
+     */
+    private static String objectiveName(PrioritySearch.Objective objective) {
+        return switch (objective) {
+            case MOVES -> "moves";
+            case CELLS_TRAVELLED -> "cells";
+            case MOVES_THEN_CELLS_TRAVELLED -> "moves+cells";
+        };
+    }
+}
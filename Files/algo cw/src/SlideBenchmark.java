@@ -0,0 +1,50 @@
+import java.io.File;
+
+/**
+ * This program compares the slide modes of BFSAlgorithm on the larger puzzle files.
+ * Each puzzle is solved repeatedly with every mode after a warm-up, and the average build and search times are printed.
+ */
+public class SlideBenchmark {
+    private static final String[] puzzleFiles = {"puzzle_320.txt", "puzzle_640.txt", "puzzle_1280.txt"};
+    private static final int warmupRuns = 5;
+    private static final int measuredRuns = 20;
+
+    /**
+     * Run the benchmark.
+     * @param args Optional folder holding the puzzle files, "algo cw/PuzzleFiles" by default
+     */
+    public static void main(String[] args) throws Exception {
+        File folder = new File(args.length > 0 ? args[0] : "algo cw/PuzzleFiles");
+        System.out.printf("%-18s %-6s %12s %12s%n", "File", "Mode", "Build (ms)", "Search (ms)");
+
+        for (String fileName : puzzleFiles) {
+            Puzzle puzzle = Puzzle.load(new File(folder, fileName).toPath());
+
+            String expected = null;
+            for (BFSAlgorithm.SlideMode mode : BFSAlgorithm.SlideMode.values()) {
+                BFSAlgorithm solver = new BFSAlgorithm(mode);
+                String path = null;
+                for (int run = 0; run < warmupRuns; run++) {
+                    path = solver.shortestDistance(puzzle.getGrid(), puzzle.getStartingPos(), puzzle.getEndingPos());
+                }
+
+                // Every mode must find exactly the same path
+                if (expected == null) {
+                    expected = path;
+                } else if (!expected.equals(path)) {
+                    throw new IllegalStateException(mode + " found a different path for " + fileName);
+                }
+
+                long buildNanos = 0;
+                long searchNanos = 0;
+                for (int run = 0; run < measuredRuns; run++) {
+                    solver.shortestDistance(puzzle.getGrid(), puzzle.getStartingPos(), puzzle.getEndingPos());
+                    buildNanos += solver.getBuildTimeNanos();
+                    searchNanos += solver.getSearchTimeNanos();
+                }
+                System.out.printf("%-18s %-6s %12.3f %12.3f%n", fileName, mode,
+                        buildNanos / 1e6 / measuredRuns, searchNanos / 1e6 / measuredRuns);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * This class finds where slides stop by scanning the bit-packed maze 64 cells at a time.
+ * Left and right slides search the row words of the grid for the nearest wall bit with
+ * Long.numberOfLeadingZeros / Long.numberOfTrailingZeros, and up and down slides do the same
+ * on a transposed copy of the grid taken when the scanner is created.
+ */
+public class SlideScanner {
+    private final int columns;
+    private final long[] rowWords;
+    private final int rowStride;
+    private final long[] columnWords;
+    private final int columnStride;
+
+    /**
+     * Create a scanner for a maze, taking a transposed copy of it for vertical slides.
+     * @param grid The bit-packed maze
+     */
+    public SlideScanner(MazeGrid grid) {
+        MazeGrid transposed = grid.transpose();
+        this.columns = grid.getColumns();
+        this.rowWords = grid.getWords();
+        this.rowStride = grid.getStride();
+        this.columnWords = transposed.getWords();
+        this.columnStride = transposed.getStride();
+    }
+
+    /**
+     * Check if word scanning is worth using for a maze.
+     * When both sides are shorter than a word every slide already fits in one long, so the scalar loop
+     * is just as fast and the transposed copy can be skipped.
+     * @param grid The bit-packed maze
+     * @return true if the maze is at least 64 cells wide or high, otherwise false
+     */
+    public static boolean isWorthwhile(MazeGrid grid) {
+        return grid.getRows() >= 64 || grid.getColumns() >= 64;
+    }
+
+    /**
+     * Get the cell where a slide stops, taking into account that a slide passing through the ending position stops on it.
+     * @param direction The direction of the slide, one of the SlideTable direction indexes
+     * @param row       The row the slide starts from
+     * @param column    The column the slide starts from
+     * @param endRow    The row of the ending position
+     * @param endColumn The column of the ending position
+     * @return The row-major index of the cell where the slide stops
+     */
+    public int stopOf(int direction, int row, int column, int endRow, int endColumn) {
+        switch (direction) {
+            case SlideTable.UP -> {
+                int stopRow = lastWallBefore(columnWords, columnStride, column, row) + 1;
+                if (column == endColumn && endRow < row && endRow >= stopRow) {
+                    stopRow = endRow;
+                }
+                return stopRow * columns + column;
+            }
+            case SlideTable.DOWN -> {
+                int stopRow = firstWallAfter(columnWords, columnStride, column, row) - 1;
+                if (column == endColumn && endRow > row && endRow <= stopRow) {
+                    stopRow = endRow;
+                }
+                return stopRow * columns + column;
+            }
+            case SlideTable.LEFT -> {
+                int stopColumn = lastWallBefore(rowWords, rowStride, row, column) + 1;
+                if (row == endRow && endColumn < column && endColumn >= stopColumn) {
+                    stopColumn = endColumn;
+                }
+                return row * columns + stopColumn;
+            }
+            default -> {
+                int stopColumn = firstWallAfter(rowWords, rowStride, row, column) - 1;
+                if (row == endRow && endColumn > column && endColumn <= stopColumn) {
+                    stopColumn = endColumn;
+                }
+                return row * columns + stopColumn;
+            }
+        }
+    }
+
+    /**
+     * Find the nearest wall in a direction from a cell, without stopping on the ending position.
+     * @param direction The direction to look in, one of the SlideTable direction indexes
+     * @param row       The row to look from
+     * @param column    The column to look from
+     * @return The row of the wall for up and down, the column for left and right, -1 or the size of the maze for the border
+     */
+    int nextWall(int direction, int row, int column) {
+        return switch (direction) {
+            case SlideTable.UP -> lastWallBefore(columnWords, columnStride, column, row);
+            case SlideTable.DOWN -> firstWallAfter(columnWords, columnStride, column, row);
+            case SlideTable.LEFT -> lastWallBefore(rowWords, rowStride, row, column);
+            default -> firstWallAfter(rowWords, rowStride, row, column);
+        };
+    }
+
+    /**
+     * Find the nearest wall after a position in a padded row.
+     * The wall border after the last cell guarantees the search ends inside the row.
+     * @param words    The backing words of the grid
+     * @param stride   The number of longs per padded row
+     * @param line     The row of the grid to search
+     * @param position The position to search from
+     * @return The position of the first wall after the given position
+     */
+    private static int firstWallAfter(long[] words, int stride, int line, int position) {
+        int bit = position + 1;
+        int offset = (line + 1) * stride;
+        int word = bit >>> 6;
+        // Keep only the bits above the starting bit in its word
+        long bits = words[offset + word] & (-2L << bit);
+        while (bits == 0) {
+            bits = words[offset + ++word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits) - 1;
+    }
+
+    /**
+     * Find the nearest wall before a position in a padded row.
+     * The wall border before the first cell guarantees the search ends inside the row.
+     * @param words    The backing words of the grid
+     * @param stride   The number of longs per padded row
+     * @param line     The row of the grid to search
+     * @param position The position to search from
+     * @return The position of the last wall before the given position
+     */
+    private static int lastWallBefore(long[] words, int stride, int line, int position) {
+        int bit = position + 1;
+        int offset = (line + 1) * stride;
+        int word = bit >>> 6;
+        // Keep only the bits below the starting bit in its word
+        long bits = words[offset + word] & ((1L << bit) - 1);
+        while (bits == 0) {
+            bits = words[offset + --word];
+        }
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(bits) - 1;
+    }
+}
@@ -0,0 +1,211 @@
+import java.util.Arrays;
+
+/**
+ * This class holds a precomputed jump table of slide destinations for a maze.
+ * For every empty cell and every direction it stores the cell where a slide stops when it hits a wall
+ * or the edge of the maze, so the search can look up each move instead of walking it one cell at a time.
+ * Cells are indexed row-major as row * columns + column.
+ */
+public class SlideTable {
+    // Direction indexes, in the same order as the moves explored by BFSAlgorithm
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+
+    private final int rows;
+    private final int columns;
+    // One flat table per direction, -1 for wall cells
+    private final int[][] stops;
+
+    /**
+     * Build the jump table with four linear sweeps over the maze.
+     * @param loadedMaze The maze where 0 represents an empty cell and 1 represents an obstacle
+     */
+    public SlideTable(int[][] loadedMaze) {
+        this(MazeGrid.fromArray(loadedMaze));
+    }
+
+    /**
+     * Build the jump table with four linear sweeps over a bit-packed maze.
+     * @param grid The bit-packed maze
+     */
+    public SlideTable(MazeGrid grid) {
+        this.rows = grid.getRows();
+        this.columns = grid.getColumns();
+        int cells = rows * columns;
+        int[] up = new int[cells];
+        int[] down = new int[cells];
+        int[] left = new int[cells];
+        int[] right = new int[cells];
+
+        // Sweep top to bottom, remembering the highest reachable row of every column
+        int[] anchor = new int[columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (grid.isWall(row, column)) {
+                    anchor[column] = row + 1;
+                    up[row * columns + column] = -1;
+                } else {
+                    up[row * columns + column] = anchor[column] * columns + column;
+                }
+            }
+        }
+
+        // Sweep bottom to top, remembering the lowest reachable row of every column
+        Arrays.fill(anchor, rows - 1);
+        for (int row = rows - 1; row >= 0; row--) {
+            for (int column = 0; column < columns; column++) {
+                if (grid.isWall(row, column)) {
+                    anchor[column] = row - 1;
+                    down[row * columns + column] = -1;
+                } else {
+                    down[row * columns + column] = anchor[column] * columns + column;
+                }
+            }
+        }
+
+        // Sweep every row in both directions for the left and right slides
+        for (int row = 0; row < rows; row++) {
+            int base = row * columns;
+            int leftmost = 0;
+            for (int column = 0; column < columns; column++) {
+                if (grid.isWall(row, column)) {
+                    leftmost = column + 1;
+                    left[base + column] = -1;
+                } else {
+                    left[base + column] = base + leftmost;
+                }
+            }
+            int rightmost = columns - 1;
+            for (int column = columns - 1; column >= 0; column--) {
+                if (grid.isWall(row, column)) {
+                    rightmost = column - 1;
+                    right[base + column] = -1;
+                } else {
+                    right[base + column] = base + rightmost;
+                }
+            }
+        }
+        this.stops = new int[][]{up, down, left, right};
+    }
+
+    /**
+     * Update the table after one cell of the maze was changed. Only the slides along the row and the column
+     * of the cell can change, so only those are swept again.
+     * @param grid   The bit-packed maze, already holding the change
+     * @param row    The row of the changed cell
+     * @param column The column of the changed cell
+     */
+    public void update(MazeGrid grid, int row, int column) {
+        int[] up = stops[UP];
+        int[] down = stops[DOWN];
+        int[] left = stops[LEFT];
+        int[] right = stops[RIGHT];
+
+        // Sweep the column in both directions for the up and down slides
+        int highest = 0;
+        for (int r = 0; r < rows; r++) {
+            int cell = r * columns + column;
+            if (grid.isWall(r, column)) {
+                highest = r + 1;
+                up[cell] = -1;
+            } else {
+                up[cell] = highest * columns + column;
+            }
+        }
+        int lowest = rows - 1;
+        for (int r = rows - 1; r >= 0; r--) {
+            int cell = r * columns + column;
+            if (grid.isWall(r, column)) {
+                lowest = r - 1;
+                down[cell] = -1;
+            } else {
+                down[cell] = lowest * columns + column;
+            }
+        }
+
+        // Sweep the row in both directions for the left and right slides
+        int base = row * columns;
+        int leftmost = 0;
+        for (int c = 0; c < columns; c++) {
+            if (grid.isWall(row, c)) {
+                leftmost = c + 1;
+                left[base + c] = -1;
+            } else {
+                left[base + c] = base + leftmost;
+            }
+        }
+        int rightmost = columns - 1;
+        for (int c = columns - 1; c >= 0; c--) {
+            if (grid.isWall(row, c)) {
+                rightmost = c - 1;
+                right[base + c] = -1;
+            } else {
+                right[base + c] = base + rightmost;
+            }
+        }
+    }
+
+    /**
+     * Get the cell where a slide stops, ignoring the ending position.
+     * @param direction The direction of the slide
+     * @param cell      The row-major index of the cell the slide starts from
+     * @return The row-major index of the cell where the slide stops, or -1 if the cell is a wall
+     */
+    public int stopOf(int direction, int cell) {
+        return stops[direction][cell];
+    }
+
+    /**
+     * Get the cell where a slide stops, taking into account that a slide passing through the ending position stops on it.
+     * @param direction The direction of the slide
+     * @param cell      The row-major index of the cell the slide starts from
+     * @param endRow    The row of the ending position
+     * @param endColumn The column of the ending position
+     * @return The row-major index of the cell where the slide stops
+     */
+    public int stopOf(int direction, int cell, int endRow, int endColumn) {
+        int stop = stops[direction][cell];
+        if (passesThrough(direction, cell, stop, endRow, endColumn)) {
+            return endRow * columns + endColumn;
+        }
+        return stop;
+    }
+
+    /**
+     * Check whether a slide from a cell to its stop cell runs over a given position.
+     * @param direction The direction of the slide
+     * @param cell      The row-major index of the cell the slide starts from
+     * @param stop      The row-major index of the cell where the slide stops
+     * @param row       The row of the position to check
+     * @param column    The column of the position to check
+     * @return true if the position lies on the slide after the starting cell, otherwise false
+     */
+    public boolean passesThrough(int direction, int cell, int stop, int row, int column) {
+        int cellRow = cell / columns;
+        int cellColumn = cell - cellRow * columns;
+        return switch (direction) {
+            case UP -> column == cellColumn && row < cellRow && row >= stop / columns;
+            case DOWN -> column == cellColumn && row > cellRow && row <= stop / columns;
+            case LEFT -> row == cellRow && column < cellColumn && column >= stop - cellRow * columns;
+            default -> row == cellRow && column > cellColumn && column <= stop - cellRow * columns;
+        };
+    }
+
+    /**
+     * Get the number of rows in the maze.
+     * @return The number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the number of columns in the maze.
+     * @return The number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+}
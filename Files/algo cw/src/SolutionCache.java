@@ -0,0 +1,511 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class remembers the solutions of puzzles that were solved before, so solving the same board again costs a hash
+ * of its grid and a replay of its moves instead of a search. Solutions are keyed by MazeFile.hash(Puzzle), which covers
+ * the grid, the starting position and the ending positions, and hold only the direction of every move, two bits each;
+ * the cells the moves stop at are found again by replaying the slides on the puzzle, which also checks the solution.
+ * There are two levels: a bounded least-recently-used map in memory, and optionally an append-only store file
+ * that keeps the solutions between runs and is indexed when the cache is opened.
+ * A store file is a header of two big-endian ints (magic and version) followed by one record per solution:
+ * the hash, the rows, columns, start cell, number of ending positions and number of moves (-1 for no path),
+ * then the packed moves. A record cut short by a crash is dropped when the file is next opened.
+ * Every method may be called from any thread. Two threads missing on the same board at once may both solve it,
+ * which is harmless, since only the first solution is written to the store.
+ */
+public class SolutionCache implements AutoCloseable {
+    // "SLSC" followed by the format version
+    private static final int magic = 0x534C5343;
+    private static final int version = 1;
+    private static final int headerBytes = 8;
+    // The hash and five ints in front of the moves of a record
+    private static final int recordHeaderBytes = 28;
+
+    private final int capacity;
+    private final LinkedHashMap<Long, Entry> recent;
+    // The store file and the position of the record of every key in it, both null without a store
+    private final FileChannel store;
+    private final Map<Long, Long> positions;
+    // The end of the last whole record, only changed while holding the lock of the store
+    private long storeEnd;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder storeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder hitNanos = new LongAdder();
+    private final LongAdder missNanos = new LongAdder();
+
+    /**
+     * Create a cache, opening or creating its store file.
+     * @param capacity  The number of solutions kept in memory
+     * @param storeFile The store file, or null to keep solutions in memory only
+     * @throws IOException If the store file cannot be opened or is not a solution store
+     */
+    public SolutionCache(int capacity, Path storeFile) throws IOException {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity cannot be negative");
+        }
+        this.capacity = capacity;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > SolutionCache.this.capacity;
+            }
+        };
+        if (storeFile == null) {
+            this.store = null;
+            this.positions = null;
+            return;
+        }
+        this.store = FileChannel.open(storeFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.positions = new ConcurrentHashMap<>();
+        try {
+            index(storeFile);
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the records of the store file into the index, writing the header of a new file
+     * and cutting off a record left half-written by a crash.
+     * @param storeFile The store file, for error messages
+     * @throws IOException If the file cannot be read or is not a solution store
+     */
+    private void index(Path storeFile) throws IOException {
+        long size = store.size();
+        if (size == 0) {
+            ByteBuffer header = ByteBuffer.allocate(headerBytes).putInt(magic).putInt(version).flip();
+            writeFully(header, 0);
+            storeEnd = headerBytes;
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(headerBytes);
+        if (size < headerBytes || !readFully(header, 0) || header.getInt(0) != magic) {
+            throw new IOException(storeFile + " is not a solution store");
+        }
+        if (header.getInt(4) != version) {
+            throw new IOException(storeFile + " is a version " + header.getInt(4) + " solution store, expected version " + version);
+        }
+        ByteBuffer record = ByteBuffer.allocate(recordHeaderBytes);
+        long position = headerBytes;
+        while (position + recordHeaderBytes <= size) {
+            record.clear();
+            if (!readFully(record, position)) {
+                break;
+            }
+            int steps = record.getInt(24);
+            long end = position + recordHeaderBytes + movesBytes(steps);
+            if (steps < -1 || end > size) {
+                break;
+            }
+            // A later record of the same board wins, although put() never writes one
+            positions.put(record.getLong(0), position);
+            position = end;
+        }
+        if (position < size) {
+            store.truncate(position);
+        }
+        storeEnd = position;
+    }
+
+    /**
+     * Look up the solution of a puzzle, first in memory and then in the store.
+     * @param puzzle The loaded puzzle
+     * @return The solution, or null if the puzzle has not been solved before
+     * @throws IOException If the store cannot be read
+     */
+    public Solution get(Puzzle puzzle) throws IOException {
+        long started = System.nanoTime();
+        long key = MazeFile.hash(puzzle);
+        Entry entry;
+        synchronized (recent) {
+            entry = recent.get(key);
+        }
+        boolean fromStore = false;
+        if (entry == null && store != null) {
+            Long position = positions.get(key);
+            if (position != null) {
+                entry = read(position);
+                fromStore = true;
+            }
+        }
+        // A board that only shares the hash fails the size checks or the replay and is a miss
+        Solution solution = entry != null && entry.matches(puzzle) ? replay(puzzle, entry) : null;
+        if (solution == null) {
+            misses.increment();
+            missNanos.add(System.nanoTime() - started);
+            return null;
+        }
+        if (fromStore) {
+            remember(key, entry);
+            storeHits.increment();
+        } else {
+            memoryHits.increment();
+        }
+        hitNanos.add(System.nanoTime() - started);
+        return solution;
+    }
+
+    /**
+     * Remember the result of the last search of a solver, in memory and in the store.
+     * Searches stopped by their limits are not remembered, since a later search may finish.
+     * @param puzzle The puzzle the solver last solved
+     * @param solver The solver
+     * @return true if the result was remembered, otherwise false
+     * @throws IOException If the store cannot be written
+     */
+    public boolean put(Puzzle puzzle, BFSAlgorithm solver) throws IOException {
+        BFSAlgorithm.Outcome outcome = solver.getOutcome();
+        if (outcome != BFSAlgorithm.Outcome.FOUND && outcome != BFSAlgorithm.Outcome.NO_PATH) {
+            return false;
+        }
+        int steps = solver.getSteps();
+        byte[] moves = new byte[movesBytes(steps)];
+        // Four moves to a byte, the first move in the lowest two bits
+        solver.walkPath((step, direction, cell) -> moves[(step - 1) >>> 2] |= (byte) (direction << ((step - 1 & 3) * 2)));
+        MazeGrid grid = puzzle.getGrid();
+        int[] start = puzzle.getStartingPos();
+        Entry entry = new Entry(grid.getRows(), grid.getColumns(), start[0] * grid.getColumns() + start[1],
+                puzzle.getTargetCount(), steps, moves);
+        long key = MazeFile.hash(puzzle);
+        remember(key, entry);
+        if (store != null) {
+            append(key, entry);
+        }
+        return true;
+    }
+
+    /**
+     * Add an entry to the memory level, dropping the least recently used one if it is full.
+     * @param key   The hash of the board
+     * @param entry The solution
+     */
+    private void remember(long key, Entry entry) {
+        if (capacity > 0) {
+            synchronized (recent) {
+                recent.put(key, entry);
+            }
+        }
+    }
+
+    /**
+     * Append an entry to the store unless its board is already there.
+     * @param key   The hash of the board
+     * @param entry The solution
+     * @throws IOException If the store cannot be written
+     */
+    private void append(long key, Entry entry) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(recordHeaderBytes + entry.moves().length);
+        record.putLong(key).putInt(entry.rows()).putInt(entry.columns()).putInt(entry.startCell())
+                .putInt(entry.targetCount()).putInt(entry.steps()).put(entry.moves()).flip();
+        synchronized (store) {
+            if (positions.containsKey(key)) {
+                return;
+            }
+            writeFully(record, storeEnd);
+            positions.put(key, storeEnd);
+            storeEnd += record.capacity();
+        }
+        stored.increment();
+    }
+
+    /**
+     * Read a record of the store.
+     * @param position The position of the record
+     * @return The solution
+     * @throws IOException If the record cannot be read
+     */
+    private Entry read(long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(recordHeaderBytes);
+        if (!readFully(header, position)) {
+            throw new IOException("The solution store is truncated");
+        }
+        int steps = header.getInt(24);
+        ByteBuffer moves = ByteBuffer.allocate(movesBytes(steps));
+        if (!readFully(moves, position + recordHeaderBytes)) {
+            throw new IOException("The solution store is truncated");
+        }
+        return new Entry(header.getInt(8), header.getInt(12), header.getInt(16), header.getInt(20), steps, moves.array());
+    }
+
+    /**
+     * Replay the moves of a solution on a puzzle to find the cell every move stops at.
+     * Every move has to slide at least one cell, only the last may stop on an ending position, and it has to,
+     * so a solution that does not fit the puzzle is rejected instead of being returned wrong.
+     * @param puzzle The loaded puzzle
+     * @param entry  The solution
+     * @return The solution with its cells, or null if it does not fit the puzzle
+     */
+    private static Solution replay(Puzzle puzzle, Entry entry) {
+        int steps = entry.steps();
+        if (steps < 0) {
+            return new Solution(entry.startCell(), entry.columns(), -1, new int[0], new byte[0]);
+        }
+        MazeGrid grid = puzzle.getGrid();
+        int columns = grid.getColumns();
+        int[] targetCells = puzzle.getTargetCells();
+        // A single ending position is compared directly, so it needs no target bits
+        TargetSet targets = targetCells.length > 1 ? puzzle.getTargets() : null;
+        int[] cells = new int[steps];
+        byte[] directions = new byte[steps];
+        int row = entry.startCell() / columns;
+        int column = entry.startCell() % columns;
+        boolean onTarget = false;
+        for (int step = 0; step < steps; step++) {
+            if (onTarget) {
+                return null;
+            }
+            int direction = entry.moves()[step >>> 2] >>> ((step & 3) * 2) & 3;
+            int rowStep = BFSAlgorithm.movableCoordinates[direction][0];
+            int columnStep = BFSAlgorithm.movableCoordinates[direction][1];
+            int moved = 0;
+            // Slide until the next cell is a wall or the ball stops on an ending position
+            while (!onTarget && !grid.isWall(row + rowStep, column + columnStep)) {
+                row += rowStep;
+                column += columnStep;
+                moved++;
+                onTarget = targets != null ? targets.contains(row, column) : row * columns + column == targetCells[0];
+            }
+            if (moved == 0) {
+                return null;
+            }
+            cells[step] = row * columns + column;
+            directions[step] = (byte) direction;
+        }
+        return onTarget ? new Solution(entry.startCell(), columns, steps, cells, directions) : null;
+    }
+
+    /**
+     * Get the number of bytes the packed moves of a solution take.
+     * @param steps The number of moves, or -1 for no path
+     * @return The number of bytes
+     */
+    private static int movesBytes(int steps) {
+        return steps > 0 ? (steps + 3) >>> 2 : 0;
+    }
+
+    /**
+     * Read from the store until a buffer is full.
+     * @param buffer   The buffer to fill
+     * @param position The position in the store to read from
+     * @return true if the buffer was filled, false if the store ended first
+     * @throws IOException If the store cannot be read
+     */
+    private boolean readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = store.read(buffer, position);
+            if (read < 0) {
+                return false;
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    /**
+     * Write a whole buffer to the store.
+     * @param buffer   The bytes to write
+     * @param position The position in the store to write at
+     * @throws IOException If the store cannot be written
+     */
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += store.write(buffer, position);
+        }
+    }
+
+    /**
+     * Get the number of lookups answered from memory.
+     * @return The number of memory hits
+     */
+    public long getMemoryHits() {
+        return memoryHits.sum();
+    }
+
+    /**
+     * Get the number of lookups answered from the store.
+     * @return The number of store hits
+     */
+    public long getStoreHits() {
+        return storeHits.sum();
+    }
+
+    /**
+     * Get the number of lookups that found no solution.
+     * @return The number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the share of lookups answered from either level.
+     * @return The hit rate from 0 to 1, or 0 before the first lookup
+     */
+    public double getHitRate() {
+        long hits = getMemoryHits() + getStoreHits();
+        long lookups = hits + getMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Get the number of solutions held in memory.
+     * @return The number of solutions
+     */
+    public int size() {
+        synchronized (recent) {
+            return recent.size();
+        }
+    }
+
+    /**
+     * Get the number of solutions in the store.
+     * @return The number of solutions, 0 without a store
+     */
+    public int getStoreSize() {
+        return positions == null ? 0 : positions.size();
+    }
+
+    /**
+     * Summarise the counters of the cache as one line of key=value pairs, with the average time of a hit,
+     * hashing and replay included, and of a miss, which does not include the search that follows it.
+     * @return The summary line
+     */
+    public String toSummaryLine() {
+        long hits = getMemoryHits() + getStoreHits();
+        long missCount = getMisses();
+        return String.format(Locale.ROOT, "solution_cache memory_hits=%d store_hits=%d misses=%d hit_rate=%.3f"
+                        + " hit_us=%.1f miss_us=%.1f cached=%d stored=%d store_size=%d",
+                getMemoryHits(), getStoreHits(), missCount, getHitRate(),
+                hits == 0 ? 0 : hitNanos.sum() / 1e3 / hits, missCount == 0 ? 0 : missNanos.sum() / 1e3 / missCount,
+                size(), stored.sum(), getStoreSize());
+    }
+
+    @Override
+    public String toString() {
+        return toSummaryLine();
+    }
+
+    /**
+     * Flush the store to the disk and close it.
+     * @throws IOException If the store cannot be flushed
+     */
+    @Override
+    public void close() throws IOException {
+        if (store != null) {
+            synchronized (store) {
+                store.force(false);
+                store.close();
+            }
+        }
+    }
+
+    /**
+     * A remembered solution as it is kept in memory and in the store.
+     * @param rows        The number of rows of the puzzle
+     * @param columns     The number of columns of the puzzle
+     * @param startCell   The index of the starting position
+     * @param targetCount The number of ending positions
+     * @param steps       The number of moves, or -1 if the puzzle has no path
+     * @param moves       The directions of the moves, four to a byte
+     */
+    private record Entry(int rows, int columns, int startCell, int targetCount, int steps, byte[] moves) {
+        /**
+         * Check that a puzzle has the size, start and number of ending positions of the solution.
+         * @param puzzle The loaded puzzle
+         * @return true if they match, otherwise false
+         */
+        boolean matches(Puzzle puzzle) {
+            MazeGrid grid = puzzle.getGrid();
+            int[] start = puzzle.getStartingPos();
+            return rows == grid.getRows() && columns == grid.getColumns()
+                    && startCell == start[0] * columns + start[1] && targetCount == puzzle.getTargetCount();
+        }
+    }
+
+    /**
+     * The solution of a puzzle rebuilt from the cache, read the same way as the last search of a BFSAlgorithm.
+     */
+    public static final class Solution {
+        private final int startCell;
+        private final int columns;
+        private final int steps;
+        private final int[] cells;
+        private final byte[] directions;
+
+        /**
+         * Create a solution.
+         * @param startCell  The index of the start cell
+         * @param columns    The number of columns in the maze
+         * @param steps      The number of moves, or -1 if there is no path
+         * @param cells      The index of the cell every move stops at
+         * @param directions The direction of every move
+         */
+        private Solution(int startCell, int columns, int steps, int[] cells, byte[] directions) {
+            this.startCell = startCell;
+            this.columns = columns;
+            this.steps = steps;
+            this.cells = cells;
+            this.directions = directions;
+        }
+
+        /**
+         * Get the number of moves on the path.
+         * @return The number of moves, or -1 if there is no path
+         */
+        public int getSteps() {
+            return steps;
+        }
+
+        /**
+         * Get the number of cells travelled along the path.
+         * @return The number of cells travelled, or -1 if there is no path
+         */
+        public long getCellsTravelled() {
+            if (steps < 0) {
+                return -1;
+            }
+            long movements = 0;
+            int from = startCell;
+            for (int cell : cells) {
+                movements += Math.abs(cell / columns - from / columns) + Math.abs(cell % columns - from % columns);
+                from = cell;
+            }
+            return movements;
+        }
+
+        /**
+         * Get the path in the format of BFSAlgorithm.getPath().
+         * @return The path, or "No path was found!" if there is none
+         */
+        public String getPath() {
+            if (steps < 0) {
+                return "No path was found!";
+            }
+            return BFSAlgorithm.formatPath(startCell, cells, directions, steps, columns);
+        }
+
+        /**
+         * Walk the moves of the path from start to end.
+         * @param visitor Called once per move, in order
+         * @throws IOException If the visitor fails to write a move
+         */
+        void walkPath(BFSAlgorithm.MoveVisitor visitor) throws IOException {
+            for (int step = 0; step < Math.max(steps, 0); step++) {
+                visitor.move(step + 1, directions[step], cells[step]);
+            }
+        }
+    }
+}
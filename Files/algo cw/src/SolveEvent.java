@@ -0,0 +1,57 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A Java Flight Recorder event for one BFSAlgorithm search, recorded with -XX:StartFlightRecording.
+ * The event duration covers the slide table build and the search.
+ */
+@Name("puzzlemania.Solve")
+@Label("Puzzle Solve")
+@Category("Puzzle Mania")
+@Description("A shortest path search with BFSAlgorithm")
+public class SolveEvent extends jdk.jfr.Event {
+    @Label("Rows")
+    int rows;
+
+    @Label("Columns")
+    int columns;
+
+    @Label("Slide Mode")
+    String slideMode;
+
+    @Label("Build Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long buildTime;
+
+    @Label("Search Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long searchTime;
+
+    @Label("Nodes Enqueued")
+    long nodesEnqueued;
+
+    @Label("Nodes Expanded")
+    long nodesExpanded;
+
+    @Label("Peak Frontier")
+    long peakFrontier;
+
+    @Label("Cells Scanned")
+    long cellsScanned;
+
+    @Label("Path Length")
+    @Description("Number of moves, -1 if no path was found")
+    int pathLength;
+
+    @Label("Outcome")
+    @Description("FOUND, NO_PATH, or the limit that stopped the search")
+    String outcome;
+
+    @Label("Bytes Allocated")
+    @DataAmount
+    long bytesAllocated;
+}
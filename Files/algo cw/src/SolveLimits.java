@@ -0,0 +1,79 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class limits one search with a deadline, a budget for the memory the search needs, and a flag another
+ * thread can set to cancel it. The solver looks at the clock and the flag once every checkInterval expanded cells,
+ * so an unlimited search pays for one counter test per cell, and it checks the budget before allocating anything.
+ * The deadline is counted from when the limits are created, so time spent waiting for a solver counts too.
+ */
+public class SolveLimits {
+    // Expanded cells between two checks of the deadline and the cancel flag, a power of two
+    static final int checkInterval = 1 << 12;
+
+    private final boolean hasDeadline;
+    private final long deadlineNanos;
+    private final long maxBytes;
+    private volatile boolean cancelled;
+
+    /**
+     * Create limits for a search.
+     * @param timeoutMillis The time the search may take from now, or 0 for no deadline
+     * @param maxBytes      The most memory the search may need for its buffers and slide tables, or 0 for no budget
+     */
+    public SolveLimits(long timeoutMillis, long maxBytes) {
+        if (timeoutMillis < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("The timeout and memory budget cannot be negative");
+        }
+        this.hasDeadline = timeoutMillis > 0;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.maxBytes = maxBytes == 0 ? Long.MAX_VALUE : maxBytes;
+    }
+
+    /**
+     * Ask the search to stop at its next check. May be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Check if the search has been cancelled.
+     * @return true if cancel() has been called, otherwise false
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Get the time left before the deadline.
+     * @return The milliseconds left, 0 once the deadline has passed, or Long.MAX_VALUE if there is no deadline
+     */
+    public long remainingMillis() {
+        if (!hasDeadline) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, (deadlineNanos - System.nanoTime()) / 1_000_000);
+    }
+
+    /**
+     * Get the memory budget.
+     * @return The most bytes the search may need, or Long.MAX_VALUE if there is no budget
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Check if the search must stop because it was cancelled or ran out of time.
+     * @return The outcome to stop with, or null if the search may go on
+     */
+    BFSAlgorithm.Outcome check() {
+        if (cancelled) {
+            return BFSAlgorithm.Outcome.CANCELLED;
+        }
+        if (hasDeadline && System.nanoTime() - deadlineNanos >= 0) {
+            return BFSAlgorithm.Outcome.TIMED_OUT;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,223 @@
+import java.io.File;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * This program load-tests SolveServer with many clients on the same machine and reports the latency percentiles.
+ * Every client is a virtual thread sending one request at a time, cycling through the bundled puzzles by path and
+ * by body and through both response formats. Every text response is checked against the path BFSAlgorithm finds.
+ * Without --url a server is started in the same JVM on a free port.
+ */
+public class SolveLoadTest {
+    private static final String[] puzzleFiles = {
+            "maze10_1.txt", "maze20_1.txt", "maze30_1.txt",
+            "puzzle_10.txt", "puzzle_40.txt", "puzzle_160.txt", "puzzle_320.txt", "puzzle_640.txt", "puzzle_1280.txt"};
+
+    /**
+     * One request to send.
+     * @param name     The name of the puzzle file
+     * @param byBody   true to send the puzzle as the body, false to name its path
+     * @param json     true to ask for JSON, false for text
+     * @param body     The puzzle text
+     * @param expected The expected text response
+     */
+    private record Request(String name, boolean byBody, boolean json, byte[] body, String expected) {
+        /**
+         * Get the kind of request for the report.
+         * @return The kind, such as "path/text"
+         */
+        String kind() {
+            return (byBody ? "body" : "path") + "/" + (json ? "json" : "text");
+        }
+    }
+
+    /**
+     * Run the load test.
+     * @param args The optional flags --url URL, --folder FOLDER, --clients N, --requests N and --warmup N
+     */
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        String folder = "algo cw/PuzzleFiles";
+        int clients = 32;
+        int requestCount = 4000;
+        int warmup = 500;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url" -> url = args[++i];
+                case "--folder" -> folder = args[++i];
+                case "--clients" -> clients = Integer.parseInt(args[++i]);
+                case "--requests" -> requestCount = Integer.parseInt(args[++i]);
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        SolveServer server = null;
+        if (url == null) {
+            server = new SolveServer(0, Path.of(folder), Runtime.getRuntime().availableProcessors(), 30_000, 64, 64 << 20,
+                    0, 0, BFSAlgorithm.SlideMode.WORD, null);
+            server.start();
+            url = "http://127.0.0.1:" + server.getPort();
+        }
+
+        // The expected paths are found locally once
+        List<Request> requests = new ArrayList<>();
+        for (String name : puzzleFiles) {
+            Path file = new File(folder, name).toPath();
+            Puzzle puzzle = Puzzle.load(file);
+            BFSAlgorithm solver = new BFSAlgorithm();
+            solver.solve(puzzle.getGrid(), puzzle.getStartingPos(), puzzle.getEndingPos());
+            byte[] body = Files.readAllBytes(file);
+            for (int kind = 0; kind < 4; kind++) {
+                requests.add(new Request(name, kind >= 2, (kind & 1) == 1, body, solver.getPath()));
+            }
+        }
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        System.out.println("Load testing " + url + " with " + clients + " clients");
+        run(client, url, requests, clients, warmup);
+        long[][] latencies = run(client, url, requests, clients, requestCount);
+
+        System.out.printf("%-12s %8s %10s %10s %10s %10s%n", "Requests", "Count", "p50 (ms)", "p90 (ms)", "p99 (ms)", "Max (ms)");
+        long[] all = new long[0];
+        for (int kind = 0; kind < 4; kind++) {
+            report(requests.get(kind).kind(), latencies[kind]);
+            int length = all.length;
+            all = Arrays.copyOf(all, length + latencies[kind].length);
+            System.arraycopy(latencies[kind], 0, all, length, latencies[kind].length);
+        }
+        report("all", all);
+        System.out.printf("Throughput: %.1f requests/s%n", latencies[4][0] == 0 ? 0 : requestCount / (latencies[4][0] / 1e9));
+
+        HttpResponse<String> stats = client.send(HttpRequest.newBuilder(URI.create(url + "/stats")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        System.out.print("Server stats: " + stats.body());
+        if (server != null) {
+            server.stop(0);
+        }
+        client.close();
+    }
+
+    /**
+     * Send requests from every client until the count is reached.
+     * @param client   The HTTP client
+     * @param url      The address of the server
+     * @param requests The requests to cycle through
+     * @param clients  The number of clients sending at once
+     * @param count    The number of requests to send
+     * @return The latencies in nanoseconds of the four kinds of request, followed by the total time in nanoseconds
+     */
+    private static long[][] run(HttpClient client, String url, List<Request> requests, int clients, int count) throws Exception {
+        long[] nanos = new long[count];
+        int[] kinds = new int[count];
+        AtomicInteger next = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                running.add(pool.submit(() -> {
+                    for (int index = next.getAndIncrement(); index < count; index = next.getAndIncrement()) {
+                        int which = index % requests.size();
+                        Request request = requests.get(which);
+                        long begin = System.nanoTime();
+                        HttpResponse<String> response = client.send(build(url, request), HttpResponse.BodyHandlers.ofString());
+                        nanos[index] = System.nanoTime() - begin;
+                        kinds[index] = which % 4;
+                        check(request, response);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        }
+        long total = System.nanoTime() - start;
+
+        long[][] byKind = new long[5][];
+        for (int kind = 0; kind < 4; kind++) {
+            int k = kind;
+            byKind[kind] = IntStream.range(0, count).filter(i -> kinds[i] == k).mapToLong(i -> nanos[i]).toArray();
+        }
+        byKind[4] = new long[]{total};
+        return byKind;
+    }
+
+    /**
+     * Build the HTTP request for a puzzle.
+     * @param url     The address of the server
+     * @param request The request to send
+     * @return The HTTP request
+     */
+    private static HttpRequest build(String url, Request request) {
+        String format = request.json() ? "json" : "text";
+        if (request.byBody()) {
+            return HttpRequest.newBuilder(URI.create(url + "/solve?format=" + format))
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(request.body())).build();
+        }
+        return HttpRequest.newBuilder(URI.create(url + "/solve?format=" + format + "&path="
+                + URLEncoder.encode(request.name(), StandardCharsets.UTF_8))).GET().build();
+    }
+
+    /**
+     * Check a response: text must be the expected path and JSON must have the expected number of moves.
+     * @param request  The request that was sent
+     * @param response The response
+     */
+    private static void check(Request request, HttpResponse<String> response) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.kind() + " " + request.name() + " failed with " + response.statusCode()
+                    + ": " + response.body());
+        }
+        boolean matches;
+        if (request.json()) {
+            long steps = request.expected().lines().count() - 1;
+            matches = response.body().contains("\"steps\":" + steps + ",");
+        } else {
+            matches = response.body().equals(request.expected());
+        }
+        if (!matches) {
+            throw new IllegalStateException(request.kind() + " " + request.name() + " returned a different path");
+        }
+    }
+
+    /**
+     * Print the latency percentiles of some requests.
+     * @param name  The kind of request
+     * @param nanos The latencies in nanoseconds
+     */
+    private static void report(String name, long[] nanos) {
+        if (nanos.length == 0) {
+            return;
+        }
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-12s %8d %10.3f %10.3f %10.3f %10.3f%n", name, sorted.length, percentile(sorted, 0.5) / 1e6,
+                percentile(sorted, 0.9) / 1e6, percentile(sorted, 0.99) / 1e6, sorted[sorted.length - 1] / 1e6);
+    }
+
+    /**
+     * Get a percentile of sorted latencies.
+     * @param sorted   The latencies in ascending order
+     * @param fraction The percentile as a fraction, such as 0.99
+     * @return The latency at the percentile
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+}
@@ -0,0 +1,599 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This program serves the solver over HTTP on the loopback interface, so other programs can solve puzzles
+ * without starting a JVM for each one. Every request runs on its own virtual thread, a semaphore limits how many
+ * searches run at once, and parsed puzzles are kept in a bounded least-recently-used cache.
+ * Boards solved before are answered from a SolutionCache without waiting for a search,
+ * which can keep its solutions in a store file between runs.
+ * <ul>
+ *     <li>GET /solve?path=FILE solves a puzzle file below the root folder</li>
+ *     <li>POST /solve solves the puzzle in the request body</li>
+ *     <li>GET /stats reports the request, solve, cache and solution cache counters as JSON</li>
+ * </ul>
+ * Both /solve forms take format=text, the default, for the path in the format of BFSAlgorithm.getPath(),
+ * or format=json for the path as a list of moves with the size and timings of the puzzle.
+ * A search that runs past the request timeout is stopped and answered with 503, and a puzzle whose search needs
+ * more memory than the budget with 422, so one huge puzzle cannot hold a solver or the heap for everyone else.
+ */
+public class SolveServer {
+    private static final String[] directionNames = {"up", "down", "left", "right"};
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final Path root;
+    private final BFSAlgorithm.SlideMode slideMode;
+    private final int maxSolves;
+    private final Semaphore solvePermits;
+    private final long solveWaitMillis;
+    private final int maxBodyBytes;
+    private final long timeoutMillis;
+    private final long maxSearchBytes;
+    private final BoardCache boards;
+    // Solutions of boards solved before, or null to search every request
+    private final SolutionCache solutions;
+
+    // Solvers not in use, so the search scratch buffers are reused from request to request
+    private final ConcurrentLinkedQueue<BFSAlgorithm> idleSolvers = new ConcurrentLinkedQueue<>();
+    // Limits of the requests being answered, cancelled when the server stops
+    private final Set<SolveLimits> activeLimits = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder solves = new LongAdder();
+    private final LongAdder cachedSolves = new LongAdder();
+    private final LongAdder solutionErrors = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder overBudget = new LongAdder();
+
+    /**
+     * Create a server, which does not accept requests until it is started.
+     * @param port            The port to listen on, or 0 for any free port
+     * @param root            The folder puzzle files are looked up in, no file outside it is served
+     * @param maxSolves       The number of searches that may run at the same time
+     * @param solveWaitMillis How long a request waits for a search to finish before it is turned away
+     * @param cacheSize       The number of parsed puzzles kept
+     * @param maxBodyBytes    The largest puzzle accepted in a request body
+     * @param timeoutMillis   The time a request may take from its arrival to the end of its search, or 0 for no limit
+     * @param maxSearchBytes  The memory one search may need, or 0 for no limit
+     * @param slideMode       The way slides are followed during the search
+     * @param solutions       The cache of solutions to answer repeated boards from, or null to search every request
+     * @throws IOException If the port cannot be opened
+     */
+    public SolveServer(int port, Path root, int maxSolves, long solveWaitMillis, int cacheSize, int maxBodyBytes,
+                       long timeoutMillis, long maxSearchBytes, BFSAlgorithm.SlideMode slideMode,
+                       SolutionCache solutions) throws IOException {
+        if (maxSolves < 1 || cacheSize < 0) {
+            throw new IllegalArgumentException("Need at least one solve and a cache size of at least 0");
+        }
+        this.root = root.toAbsolutePath().normalize();
+        this.slideMode = slideMode;
+        this.maxSolves = maxSolves;
+        this.solvePermits = new Semaphore(maxSolves, true);
+        this.solveWaitMillis = solveWaitMillis;
+        this.maxBodyBytes = maxBodyBytes;
+        this.timeoutMillis = timeoutMillis;
+        this.maxSearchBytes = maxSearchBytes;
+        this.boards = new BoardCache(cacheSize);
+        this.solutions = solutions;
+        this.handlers = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.setExecutor(handlers);
+        this.server.createContext("/solve", this::handleSolve);
+        this.server.createContext("/stats", this::handleStats);
+    }
+
+    /**
+     * Run the server until the process is stopped.
+     * @param args The optional flags --port N, --root FOLDER, --solves N, --wait MILLIS, --cache N,
+     *             --max-body BYTES, --timeout MILLIS, --max-memory MB, --mode scan|table|word,
+     *             --solution-cache N and --solutions FILE
+     */
+    public static void main(String[] args) throws Exception {
+        int port = 8080;
+        Path root = Path.of("algo cw/PuzzleFiles");
+        int maxSolves = Runtime.getRuntime().availableProcessors();
+        long wait = 30_000;
+        int cacheSize = 64;
+        int maxBody = 64 << 20;
+        long timeout = 10_000;
+        long maxMemory = 0;
+        BFSAlgorithm.SlideMode mode = BFSAlgorithm.SlideMode.WORD;
+        int solutionCacheSize = 1024;
+        Path solutionStore = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--root" -> root = Path.of(args[++i]);
+                case "--solves" -> maxSolves = Integer.parseInt(args[++i]);
+                case "--wait" -> wait = Long.parseLong(args[++i]);
+                case "--cache" -> cacheSize = Integer.parseInt(args[++i]);
+                case "--max-body" -> maxBody = Integer.parseInt(args[++i]);
+                case "--timeout" -> timeout = Long.parseLong(args[++i]);
+                case "--max-memory" -> maxMemory = Long.parseLong(args[++i]) << 20;
+                case "--mode" -> mode = BFSAlgorithm.SlideMode.valueOf(args[++i].toUpperCase());
+                case "--solution-cache" -> solutionCacheSize = Integer.parseInt(args[++i]);
+                case "--solutions" -> solutionStore = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        // The store is written through to the file system as solutions come in, so it survives the process being stopped
+        SolutionCache solutions = solutionCacheSize > 0 || solutionStore != null
+                ? new SolutionCache(solutionCacheSize, solutionStore) : null;
+        SolveServer server = new SolveServer(port, root, maxSolves, wait, cacheSize, maxBody, timeout, maxMemory, mode, solutions);
+        server.start();
+        System.out.println("Solving puzzles from " + server.root + " on http://127.0.0.1:" + server.getPort()
+                + "/solve with " + maxSolves + " searches at a time");
+    }
+
+    /**
+     * Start accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests, cancel the searches still running and wait for their requests to be answered.
+     * @param delaySeconds The longest time to wait for running requests
+     */
+    public void stop(int delaySeconds) {
+        for (SolveLimits limits : activeLimits) {
+            limits.cancel();
+        }
+        server.stop(delaySeconds);
+        handlers.close();
+    }
+
+    /**
+     * Get the port the server listens on.
+     * @return The port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Handle a request to /solve.
+     * @param exchange The request and its response
+     * @throws IOException If the response cannot be written
+     */
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        requests.increment();
+        // The timeout counts from the arrival of the request, so time spent loading and waiting is part of it
+        SolveLimits limits = new SolveLimits(timeoutMillis, maxSearchBytes);
+        activeLimits.add(limits);
+        try (exchange) {
+            try {
+                solve(exchange, limits);
+            } catch (RuntimeException e) {
+                failed.increment();
+                send(exchange, 500, "The puzzle could not be solved: " + e);
+            }
+        } finally {
+            activeLimits.remove(limits);
+        }
+    }
+
+    /**
+     * Load, solve and answer one request to /solve.
+     * @param exchange The request and its response
+     * @param limits   The limits of the search
+     * @throws IOException If the response cannot be written
+     */
+    private void solve(HttpExchange exchange, SolveLimits limits) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        boolean json = "json".equals(query.get("format"));
+        long parseStart = System.nanoTime();
+        Puzzle puzzle;
+        try {
+            puzzle = switch (exchange.getRequestMethod()) {
+                case "GET" -> loadFile(exchange, query.get("path"));
+                case "POST" -> loadBody(exchange);
+                default -> {
+                    send(exchange, 405, "Use GET with ?path= or POST with the puzzle as the body");
+                    yield null;
+                }
+            };
+        } catch (IOException e) {
+            failed.increment();
+            send(exchange, 400, e.getMessage());
+            return;
+        }
+        if (puzzle == null) {
+            return;
+        }
+        long parseNanos = System.nanoTime() - parseStart;
+
+        // A board solved before needs no search, so it does not wait for one either
+        if (solutions != null) {
+            long lookupStart = System.nanoTime();
+            SolutionCache.Solution solution = null;
+            try {
+                solution = solutions.get(puzzle);
+            } catch (IOException e) {
+                // An unreadable store only costs the search
+                solutionErrors.increment();
+            }
+            if (solution != null) {
+                long lookupNanos = System.nanoTime() - lookupStart;
+                byte[] response = json ? formatJson(puzzle, solution, parseNanos, lookupNanos)
+                        : solution.getPath().getBytes(StandardCharsets.US_ASCII);
+                cachedSolves.increment();
+                exchange.getResponseHeaders().set("Content-Type", json ? "application/json" : "text/plain; charset=us-ascii");
+                exchange.sendResponseHeaders(200, response.length);
+                exchange.getResponseBody().write(response);
+                return;
+            }
+        }
+
+        // Wait for a free search, turning the request away if the wait is too long
+        try {
+            if (!solvePermits.tryAcquire(Math.min(solveWaitMillis, limits.remainingMillis()), TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                send(exchange, 503, "Too many puzzles are being solved, try again later");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, "The server is stopping");
+            return;
+        }
+        byte[] response;
+        int status;
+        try {
+            BFSAlgorithm solver = idleSolvers.poll();
+            if (solver == null) {
+                solver = new BFSAlgorithm(slideMode);
+            }
+            solver.setLimits(limits);
+            solver.solve(puzzle);
+            // A search stopped by its limits is answered with how far it got instead of a path
+            status = switch (solver.getOutcome()) {
+                case FOUND, NO_PATH -> 200;
+                case TIMED_OUT, CANCELLED -> 503;
+                case OVER_BUDGET -> 422;
+            };
+            response = json ? formatJson(puzzle, solver, parseNanos) : formatText(solver);
+            if (solutions != null) {
+                try {
+                    solutions.put(puzzle, solver);
+                } catch (IOException e) {
+                    // The answer does not depend on the store, so it is still sent
+                    solutionErrors.increment();
+                }
+            }
+            solver.setLimits(null);
+            idleSolvers.add(solver);
+            if (status == 200) {
+                solves.increment();
+            } else if (status == 503) {
+                timedOut.increment();
+            } else {
+                overBudget.increment();
+            }
+        } finally {
+            solvePermits.release();
+        }
+        exchange.getResponseHeaders().set("Content-Type", json ? "application/json" : "text/plain; charset=us-ascii");
+        exchange.sendResponseHeaders(status, response.length);
+        exchange.getResponseBody().write(response);
+    }
+
+    /**
+     * Load a puzzle file named by a request, through the cache.
+     * Files are cached by their path, size and modification time, so an edited file is parsed again.
+     * @param exchange The request
+     * @param name     The file, relative to the root folder
+     * @return The puzzle, or null if an error response was sent
+     * @throws IOException If the file is not a valid puzzle
+     */
+    private Puzzle loadFile(HttpExchange exchange, String name) throws IOException {
+        if (name == null) {
+            send(exchange, 400, "Missing ?path= of the puzzle file");
+            return null;
+        }
+        Path file = root.resolve(name).normalize();
+        if (!file.startsWith(root)) {
+            send(exchange, 403, "Only files below " + root + " are served");
+            return null;
+        }
+        if (!Files.isRegularFile(file)) {
+            send(exchange, 404, "No puzzle file " + name);
+            return null;
+        }
+        String key = "file:" + file + ":" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+        Puzzle puzzle = boards.get(key);
+        if (puzzle == null) {
+            puzzle = Puzzle.load(file);
+            boards.put(key, puzzle);
+        }
+        return puzzle;
+    }
+
+    /**
+     * Load the puzzle in the body of a request, through the cache.
+     * Bodies are cached by a hash of their contents.
+     * @param exchange The request
+     * @return The puzzle, or null if an error response was sent
+     * @throws IOException If the body cannot be read or is not a valid puzzle
+     */
+    private Puzzle loadBody(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(maxBodyBytes + 1);
+        }
+        if (body.length > maxBodyBytes) {
+            send(exchange, 413, "The puzzle is larger than " + maxBodyBytes + " bytes");
+            return null;
+        }
+        String key = "body:" + Long.toHexString(MazeFile.hash(body)) + ":" + body.length;
+        Puzzle puzzle = boards.get(key);
+        if (puzzle == null) {
+            puzzle = Puzzle.parse("request", body);
+            boards.put(key, puzzle);
+        }
+        return puzzle;
+    }
+
+    /**
+     * Format the path found by a search in the format of BFSAlgorithm.getPath().
+     * @param solver The solver
+     * @return The path text
+     * @throws IOException If the path cannot be written
+     */
+    private static byte[] formatText(BFSAlgorithm solver) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + Math.max(0, solver.getSteps()) * 32);
+        MazeRenderer renderer = new MazeRenderer(out);
+        renderer.writePath(solver);
+        renderer.flush();
+        return out.toByteArray();
+    }
+
+    /**
+     * Format the result of a search as JSON, with every move as its direction and the one-based x and y
+     * of the cell it stops at, and the way the search ended with the number of cells it expanded.
+     * @param puzzle     The puzzle
+     * @param solver     The solver
+     * @param parseNanos The time spent loading the puzzle in nanoseconds
+     * @return The JSON object
+     * @throws IOException If the path cannot be walked
+     */
+    private static byte[] formatJson(Puzzle puzzle, BFSAlgorithm solver, long parseNanos) throws IOException {
+        StringBuilder json = startJson(puzzle, solver.getSteps(), solver.getCellsTravelled(), parseNanos,
+                solver.getBuildTimeNanos() + solver.getSearchTimeNanos(), solver.getOutcome(), solver.getNodesExpanded(), false);
+        if (solver.getSteps() > 0) {
+            solver.walkPath(moveWriter(json, puzzle.getGrid().getColumns()));
+        }
+        json.append("]}\n");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Format a solution from the cache as JSON in the same form as the result of a search,
+     * where the search time is the time the lookup took and no cells were expanded.
+     * @param puzzle      The puzzle
+     * @param solution    The solution
+     * @param parseNanos  The time spent loading the puzzle in nanoseconds
+     * @param lookupNanos The time spent looking the solution up in nanoseconds
+     * @return The JSON object
+     * @throws IOException If the path cannot be walked
+     */
+    private static byte[] formatJson(Puzzle puzzle, SolutionCache.Solution solution, long parseNanos, long lookupNanos)
+            throws IOException {
+        BFSAlgorithm.Outcome outcome = solution.getSteps() < 0 ? BFSAlgorithm.Outcome.NO_PATH : BFSAlgorithm.Outcome.FOUND;
+        StringBuilder json = startJson(puzzle, solution.getSteps(), solution.getCellsTravelled(), parseNanos, lookupNanos,
+                outcome, 0, true);
+        solution.walkPath(moveWriter(json, puzzle.getGrid().getColumns()));
+        json.append("]}\n");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Start the JSON object of a result, up to the opening bracket of the list of moves.
+     * @param puzzle         The puzzle
+     * @param steps          The number of moves, or -1 if there is no path
+     * @param cellsTravelled The number of cells travelled, or -1 if there is no path
+     * @param parseNanos     The time spent loading the puzzle in nanoseconds
+     * @param searchNanos    The time spent searching or looking the solution up in nanoseconds
+     * @param outcome        The way the search ended
+     * @param expanded       The number of cells the search expanded
+     * @param cached         true if the result came from the solution cache
+     * @return The JSON text so far
+     */
+    private static StringBuilder startJson(Puzzle puzzle, int steps, long cellsTravelled, long parseNanos, long searchNanos,
+                                           BFSAlgorithm.Outcome outcome, long expanded, boolean cached) {
+        MazeGrid grid = puzzle.getGrid();
+        StringBuilder json = new StringBuilder(256 + Math.max(0, steps) * 40);
+        json.append("{\"file\":").append(BatchSolver.jsonString(puzzle.getFileName()))
+                .append(",\"rows\":").append(grid.getRows())
+                .append(",\"columns\":").append(grid.getColumns())
+                .append(",\"steps\":").append(steps)
+                .append(",\"cells_travelled\":").append(cellsTravelled)
+                .append(",\"parse_ms\":").append(String.format(Locale.ROOT, "%.3f", parseNanos / 1e6))
+                .append(",\"search_ms\":").append(String.format(Locale.ROOT, "%.3f", searchNanos / 1e6))
+                .append(",\"outcome\":\"").append(outcome.name().toLowerCase(Locale.ROOT)).append('"')
+                .append(",\"expanded\":").append(expanded)
+                .append(",\"cached\":").append(cached)
+                .append(",\"start\":{\"x\":").append(puzzle.getStartingPos()[1] + 1)
+                .append(",\"y\":").append(puzzle.getStartingPos()[0] + 1)
+                .append("},\"moves\":[");
+        return json;
+    }
+
+    /**
+     * Create a visitor that appends every move to a JSON list.
+     * @param json    The JSON text to append to
+     * @param columns The number of columns in the maze
+     * @return The visitor
+     */
+    private static BFSAlgorithm.MoveVisitor moveWriter(StringBuilder json, int columns) {
+        return (step, direction, cell) -> json.append(step > 1 ? "," : "")
+                .append("{\"direction\":\"").append(directionNames[direction])
+                .append("\",\"x\":").append(cell % columns + 1)
+                .append(",\"y\":").append(cell / columns + 1).append('}');
+    }
+
+    /**
+     * Handle a request to /stats.
+     * @param exchange The request and its response
+     * @throws IOException If the response cannot be written
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String json = "{\"requests\":" + requests.sum()
+                    + ",\"solves\":" + solves.sum()
+                    + ",\"rejected\":" + rejected.sum()
+                    + ",\"failed\":" + failed.sum()
+                    + ",\"timed_out\":" + timedOut.sum()
+                    + ",\"over_budget\":" + overBudget.sum()
+                    + ",\"solving\":" + (maxSolves - solvePermits.availablePermits())
+                    + ",\"cache_hits\":" + boards.hits.sum()
+                    + ",\"cache_misses\":" + boards.misses.sum()
+                    + ",\"cached_boards\":" + boards.size()
+                    + solutionStats()
+                    + "}\n";
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    /**
+     * Format the solution cache counters as JSON fields for /stats.
+     * @return The fields, each with a leading comma, or nothing without a solution cache
+     */
+    private String solutionStats() {
+        if (solutions == null) {
+            return "";
+        }
+        return ",\"cached_solves\":" + cachedSolves.sum()
+                + ",\"solution_hits\":" + (solutions.getMemoryHits() + solutions.getStoreHits())
+                + ",\"solution_store_hits\":" + solutions.getStoreHits()
+                + ",\"solution_misses\":" + solutions.getMisses()
+                + ",\"solution_hit_rate\":" + String.format(Locale.ROOT, "%.3f", solutions.getHitRate())
+                + ",\"cached_solutions\":" + solutions.size()
+                + ",\"stored_solutions\":" + solutions.getStoreSize()
+                + ",\"solution_errors\":" + solutionErrors.sum();
+    }
+
+    /**
+     * Send a plain text response.
+     * @param exchange The request and its response
+     * @param status   The HTTP status code
+     * @param message  The text of the response
+     * @throws IOException If the response cannot be written
+     */
+    private static void send(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] bytes = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Split a URL query into its decoded parameters.
+     * @param rawQuery The query without the leading '?', or null
+     * @return The parameters, the last value winning when a name repeats
+     */
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * A bounded cache of parsed puzzles that drops the least recently used one when it is full.
+     * Two requests missing on the same puzzle at once may both parse it, which is harmless.
+     */
+    private static class BoardCache {
+        private final int capacity;
+        private final LinkedHashMap<String, Puzzle> entries;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        /**
+         * Create a cache.
+         * @param capacity The number of puzzles kept
+         */
+        BoardCache(int capacity) {
+            this.capacity = capacity;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Puzzle> eldest) {
+                    return size() > BoardCache.this.capacity;
+                }
+            };
+        }
+
+        /**
+         * Get a cached puzzle, counting a hit or a miss.
+         * @param key The key of the puzzle
+         * @return The puzzle, or null if it is not cached
+         */
+        synchronized Puzzle get(String key) {
+            Puzzle puzzle = entries.get(key);
+            if (puzzle == null) {
+                misses.increment();
+            } else {
+                hits.increment();
+            }
+            return puzzle;
+        }
+
+        /**
+         * Add a puzzle, dropping the least recently used one if the cache is full.
+         * @param key    The key of the puzzle
+         * @param puzzle The parsed puzzle
+         */
+        synchronized void put(String key, Puzzle puzzle) {
+            if (capacity > 0) {
+                entries.put(key, puzzle);
+            }
+        }
+
+        /**
+         * Get the number of cached puzzles.
+         * @return The number of puzzles
+         */
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
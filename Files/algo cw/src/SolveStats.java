@@ -0,0 +1,274 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * This class collects the counters and phase timings of loading and solving one puzzle.
+ * A BFSAlgorithm only records the counters that cost something to keep, such as the peak frontier,
+ * the cells crossed by slides and the bytes allocated, when a SolveStats is attached to it,
+ * so a solver without one runs the same as before.
+ */
+public class SolveStats {
+    private static final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    // Whether a flight recording is running, kept by a RecordingWatcher once the recorder is initialised
+    private static volatile boolean recordingRunning;
+    private static volatile boolean watchingRecordings;
+
+    private String fileName;
+    private int rows;
+    private int columns;
+    private String slideMode;
+    private long parseNanos;
+    private long buildNanos;
+    private long searchNanos;
+    private long nodesEnqueued;
+    private long nodesExpanded;
+    private long peakFrontier;
+    private long cellsScanned;
+    private int pathLength = -1;
+    private long cellsTravelled = -1;
+    private long bytesAllocated = -1;
+    private String outcome;
+
+    /**
+     * Record the puzzle the statistics are about.
+     * @param puzzle The loaded puzzle, whose parse time is recorded too
+     */
+    public void recordPuzzle(Puzzle puzzle) {
+        this.fileName = puzzle.getFileName();
+        this.rows = puzzle.getGrid().getRows();
+        this.columns = puzzle.getGrid().getColumns();
+        this.parseNanos = puzzle.getParseTimeNanos();
+    }
+
+    /**
+     * Record the outcome of a search.
+     * @param slideMode      The way slides were followed
+     * @param buildNanos     The time spent building the slide table or scanner in nanoseconds
+     * @param searchNanos    The time spent searching in nanoseconds
+     * @param nodesEnqueued  The number of cells added to the queue
+     * @param nodesExpanded  The number of cells taken off the queue
+     * @param peakFrontier   The largest number of cells waiting in the queue at once
+     * @param cellsScanned   The number of cells crossed by the slides that were followed
+     * @param pathLength     The number of moves on the path, or -1 if no path was found
+     * @param cellsTravelled The number of cells travelled along the path, or -1 if no path was found
+     * @param bytesAllocated The bytes allocated by the solving thread, or -1 if the JVM cannot measure it
+     * @param outcome        The way the search ended
+     */
+    void recordSearch(String slideMode, long buildNanos, long searchNanos, long nodesEnqueued, long nodesExpanded,
+                      long peakFrontier, long cellsScanned, int pathLength, long cellsTravelled, long bytesAllocated,
+                      String outcome) {
+        this.slideMode = slideMode;
+        this.buildNanos = buildNanos;
+        this.searchNanos = searchNanos;
+        this.nodesEnqueued = nodesEnqueued;
+        this.nodesExpanded = nodesExpanded;
+        this.peakFrontier = peakFrontier;
+        this.cellsScanned = cellsScanned;
+        this.pathLength = pathLength;
+        this.cellsTravelled = cellsTravelled;
+        this.bytesAllocated = bytesAllocated;
+        this.outcome = outcome;
+    }
+
+    /**
+     * Check if a flight recording is running in this JVM. Loading the JFR event classes costs a few hundred
+     * milliseconds the first time, so events are only created while a recording is running.
+     * The answer is kept by a listener that is added once the recorder is initialised and updated whenever a recording
+     * changes state, so the check costs a field read and a JVM that never records never loads the listener.
+     * @return true if a recording is running, otherwise false
+     */
+    static boolean isFlightRecorderRunning() {
+        if (!jdk.jfr.FlightRecorder.isInitialized()) {
+            return false;
+        }
+        if (!watchingRecordings) {
+            watchRecordings();
+        }
+        return recordingRunning;
+    }
+
+    /**
+     * Add the listener that keeps recordingRunning up to date, once.
+     */
+    private static synchronized void watchRecordings() {
+        if (!watchingRecordings) {
+            // The listener is told about an initialised recorder straight away, which sets the flag the first time
+            jdk.jfr.FlightRecorder.addListener(new RecordingWatcher());
+            watchingRecordings = true;
+        }
+    }
+
+    /**
+     * Get the bytes allocated so far by the current thread.
+     * @return The allocated bytes, or -1 if the JVM cannot measure it
+     */
+    static long currentThreadAllocatedBytes() {
+        return threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled()
+                ? threadBean.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    /**
+     * Format the statistics as one line of space-separated key=value pairs, times in milliseconds.
+     * @return The summary line
+     */
+    public String toSummaryLine() {
+        return String.format(Locale.ROOT, "solve_stats file=%s rows=%d columns=%d mode=%s parse_ms=%.3f build_ms=%.3f search_ms=%.3f"
+                        + " enqueued=%d expanded=%d peak_frontier=%d cells_scanned=%d path_length=%d cells_travelled=%d bytes_allocated=%d outcome=%s",
+                fileName == null ? "-" : fileName.replace(' ', '_'), rows, columns, slideMode == null ? "-" : slideMode,
+                parseNanos / 1e6, buildNanos / 1e6, searchNanos / 1e6, nodesEnqueued, nodesExpanded, peakFrontier,
+                cellsScanned, pathLength, cellsTravelled, bytesAllocated, outcome == null ? "-" : outcome);
+    }
+
+    @Override
+    public String toString() {
+        return toSummaryLine();
+    }
+
+    /**
+     * Get the name of the puzzle file.
+     * @return The file name, or null if no puzzle was recorded
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Get the number of rows in the maze.
+     * @return The number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the number of columns in the maze.
+     * @return The number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the way slides were followed.
+     * @return The slide mode name, or null if no search was recorded
+     */
+    public String getSlideMode() {
+        return slideMode;
+    }
+
+    /**
+     * Get the time spent parsing the puzzle file.
+     * @return The parse time in nanoseconds
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * Get the time spent building the slide table or scanner.
+     * @return The build time in nanoseconds
+     */
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * Get the time spent searching.
+     * @return The search time in nanoseconds
+     */
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    /**
+     * Get the number of cells added to the queue.
+     * @return The number of enqueued cells
+     */
+    public long getNodesEnqueued() {
+        return nodesEnqueued;
+    }
+
+    /**
+     * Get the number of cells taken off the queue.
+     * @return The number of expanded cells
+     */
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /**
+     * Get the largest number of cells waiting in the queue at once.
+     * @return The peak frontier size
+     */
+    public long getPeakFrontier() {
+        return peakFrontier;
+    }
+
+    /**
+     * Get the number of cells crossed by the slides that were followed.
+     * @return The number of cells scanned
+     */
+    public long getCellsScanned() {
+        return cellsScanned;
+    }
+
+    /**
+     * Get the number of moves on the path.
+     * @return The path length, or -1 if no path was found
+     */
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    /**
+     * Get the number of cells travelled along the path.
+     * @return The cells travelled, or -1 if no path was found
+     */
+    public long getCellsTravelled() {
+        return cellsTravelled;
+    }
+
+    /**
+     * Get the bytes allocated by the solving thread during the search.
+     * @return The allocated bytes, or -1 if the JVM cannot measure it
+     */
+    public long getBytesAllocated() {
+        return bytesAllocated;
+    }
+
+    /**
+     * Get the way the search ended.
+     * @return The name of the BFSAlgorithm outcome, or null if no search was recorded
+     */
+    public String getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Keeps recordingRunning up to date as recordings start and stop.
+     */
+    private static class RecordingWatcher implements jdk.jfr.FlightRecorderListener {
+        @Override
+        public void recorderInitialized(jdk.jfr.FlightRecorder recorder) {
+            update(recorder);
+        }
+
+        @Override
+        public void recordingStateChanged(jdk.jfr.Recording recording) {
+            update(jdk.jfr.FlightRecorder.getFlightRecorder());
+        }
+
+        /**
+         * Look for a running recording.
+         * @param recorder The flight recorder
+         */
+        private static void update(jdk.jfr.FlightRecorder recorder) {
+            boolean running = false;
+            for (jdk.jfr.Recording recording : recorder.getRecordings()) {
+                running |= recording.getState() == jdk.jfr.RecordingState.RUNNING;
+            }
+            recordingRunning = running;
+        }
+    }
+}
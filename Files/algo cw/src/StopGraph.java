@@ -0,0 +1,355 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This class holds the graph of the cells a slide can stop on, which are the only cells a search ever visits.
+ * A cell is a node if it is next to a wall or the border, or if it is the starting or ending position,
+ * and the nodes are numbered densely in row-major order. The out-edges of every node are stored in
+ * compressed sparse row form: the edges of node n are edges[offsets[n]] to edges[offsets[n + 1] - 1],
+ * each packed as target node * 4 + direction, in the order up, down, left, right, so a BFS over the graph
+ * visits the nodes in the same order as BFSAlgorithm and returns the same path.
+ * A graph can be saved to a binary file and memory-mapped back without reading it into the heap.
+ */
+public class StopGraph {
+    // "SLGR" followed by the format version
+    private static final int magic = 0x534C4752;
+    private static final int version = 1;
+    private static final int headerInts = 8;
+
+    private final int rows;
+    private final int columns;
+    private final int startNode;
+    private final int endNode;
+    private final int nodeCount;
+    private final int edgeCount;
+    // Cell index of every node, sorted, so a cell can be turned back into a node by binary search
+    private final IntBuffer cellOf;
+    private final IntBuffer offsets;
+    private final IntBuffer edges;
+
+    // Scratch buffers indexed by node, kept between searches
+    private long[] visited = new long[0];
+    private int[] queue = new int[0];
+    private int[] parent = new int[0];
+    private long nodesExpanded;
+    private long searchTimeNanos;
+    private int lastEndNode = -1;
+
+    /**
+     * Create a graph from its arrays or mapped buffers.
+     * @param rows      The number of rows in the maze
+     * @param columns   The number of columns in the maze
+     * @param startNode The node of the starting position
+     * @param endNode   The node of the ending position
+     * @param cellOf    The cell index of every node
+     * @param offsets   The first edge of every node, followed by the number of edges
+     * @param edges     The edges packed as target node * 4 + direction
+     */
+    private StopGraph(int rows, int columns, int startNode, int endNode, IntBuffer cellOf, IntBuffer offsets, IntBuffer edges) {
+        this.rows = rows;
+        this.columns = columns;
+        this.startNode = startNode;
+        this.endNode = endNode;
+        this.nodeCount = cellOf.limit();
+        this.edgeCount = edges.limit();
+        this.cellOf = cellOf;
+        this.offsets = offsets;
+        this.edges = edges;
+    }
+
+    /**
+     * Build the stop-cell graph of a loaded puzzle.
+     * @param puzzle The loaded puzzle
+     * @return The graph
+     */
+    public static StopGraph build(Puzzle puzzle) {
+        MazeGrid grid = puzzle.getGrid();
+        int rows = grid.getRows();
+        int columns = grid.getColumns();
+        int[] start = puzzle.getStartingPos();
+        int[] end = puzzle.getEndingPos();
+        int startCell = start[0] * columns + start[1];
+        int endCell = end[0] * columns + end[1];
+
+        // Number the nodes in row-major order, every other cell keeps -1
+        int[] nodeOfCell = new int[rows * columns];
+        int nodes = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int cell = row * columns + column;
+                boolean node = !grid.isWall(row, column) && (cell == startCell || cell == endCell
+                        || grid.isWall(row - 1, column) || grid.isWall(row + 1, column)
+                        || grid.isWall(row, column - 1) || grid.isWall(row, column + 1));
+                nodeOfCell[cell] = node ? nodes++ : -1;
+            }
+        }
+
+        // Every slide ends next to a wall or on the ending position, so its stop is always a node
+        SlideTable slideTable = new SlideTable(grid);
+        int[] cellOf = new int[nodes];
+        int[] offsets = new int[nodes + 1];
+        int[] edges = new int[nodes * 4];
+        int edgeCount = 0;
+        for (int cell = 0; cell < nodeOfCell.length; cell++) {
+            int node = nodeOfCell[cell];
+            if (node < 0) {
+                continue;
+            }
+            cellOf[node] = cell;
+            offsets[node] = edgeCount;
+            for (int i = 0; i < BFSAlgorithm.movableCoordinates.length; i++) {
+                int stop = slideTable.stopOf(i, cell, end[0], end[1]);
+                // A slide straight into a wall goes nowhere and is left out
+                if (stop != cell) {
+                    edges[edgeCount++] = nodeOfCell[stop] << 2 | i;
+                }
+            }
+        }
+        offsets[nodes] = edgeCount;
+        return new StopGraph(rows, columns, nodeOfCell[startCell], nodeOfCell[endCell],
+                IntBuffer.wrap(cellOf), IntBuffer.wrap(offsets), IntBuffer.wrap(Arrays.copyOf(edges, edgeCount)));
+    }
+
+    /**
+     * Save the graph to a binary file: a header of eight ints (magic, version, rows, columns, start node, end node,
+     * node count, edge count) followed by the cell, offset and edge arrays, all big-endian.
+     * @param path The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        long size = 4L * (headerInts + nodeCount + nodeCount + 1 + edgeCount);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            IntBuffer ints = buffer.asIntBuffer();
+            ints.put(new int[]{magic, version, rows, columns, startNode, endNode, nodeCount, edgeCount});
+            ints.put(cellOf.duplicate().rewind());
+            ints.put(offsets.duplicate().rewind());
+            ints.put(edges.duplicate().rewind());
+            buffer.force();
+        }
+    }
+
+    /**
+     * Memory-map a graph saved by {@link #save(Path)}. The arrays are read straight from the mapping,
+     * which stays valid after the file is closed.
+     * @param path The graph file
+     * @return The graph
+     * @throws IOException If the file cannot be read or is not a graph file
+     */
+    public static StopGraph map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 4L * headerInts) {
+                throw new IOException(path + " is too short to be a graph file");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + " is larger than one mapping can hold");
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            IntBuffer ints = buffer.asIntBuffer();
+            if (ints.get(0) != magic) {
+                throw new IOException(path + " is not a graph file");
+            }
+            if (ints.get(1) != version) {
+                throw new IOException(path + " has graph format version " + ints.get(1) + ", expected " + version);
+            }
+            int nodes = ints.get(6);
+            int edgeTotal = ints.get(7);
+            if (nodes < 0 || edgeTotal < 0 || size != 4L * (headerInts + nodes + nodes + 1 + edgeTotal)) {
+                throw new IOException(path + " is truncated or corrupt");
+            }
+            return new StopGraph(ints.get(2), ints.get(3), ints.get(4), ints.get(5),
+                    ints.slice(headerInts, nodes),
+                    ints.slice(headerInts + nodes, nodes + 1),
+                    ints.slice(headerInts + 2 * nodes + 1, edgeTotal));
+        }
+    }
+
+    /**
+     * Finds the shortest path from the starting position to the ending position of the puzzle the graph was built from.
+     * @return The shortest path, the same one BFSAlgorithm returns
+     */
+    public String shortestDistance() {
+        solve();
+        return getPath();
+    }
+
+    /**
+     * Run a BFS over the graph without building the path text.
+     * @return true if a path was found, otherwise false
+     */
+    public boolean solve() {
+        long searchStart = System.nanoTime();
+        prepare();
+        nodesExpanded = 0;
+        lastEndNode = -1;
+
+        int head = 0;
+        int tail = 0;
+        visited[startNode >>> 6] |= 1L << startNode;
+        parent[startNode] = -1;
+        queue[tail++] = startNode;
+        while (head < tail) {
+            int node = queue[head++];
+            nodesExpanded++;
+            if (node == endNode) {
+                lastEndNode = node;
+                break;
+            }
+            int last = offsets.get(node + 1);
+            for (int edge = offsets.get(node); edge < last; edge++) {
+                int target = edges.get(edge) >>> 2;
+                if ((visited[target >>> 6] & (1L << target)) == 0) {
+                    visited[target >>> 6] |= 1L << target;
+                    parent[target] = node;
+                    queue[tail++] = target;
+                }
+            }
+        }
+        searchTimeNanos = System.nanoTime() - searchStart;
+        return lastEndNode >= 0;
+    }
+
+    /**
+     * Make sure the scratch buffers can hold every node and clear the visited bits.
+     */
+    private void prepare() {
+        if (queue.length < nodeCount) {
+            visited = new long[(nodeCount + 63) >>> 6];
+            queue = new int[nodeCount];
+            parent = new int[nodeCount];
+        } else {
+            Arrays.fill(visited, 0L);
+        }
+    }
+
+    /**
+     * Get the path found by the last search.
+     * @return The path in the format "Start at: (x, y)" followed by one numbered move per line, or a message if no path was found
+     */
+    public String getPath() {
+        if (lastEndNode < 0) {
+            return "No path was found!";
+        }
+        int steps = getSteps();
+        int[] cells = new int[steps];
+        byte[] directions = new byte[steps];
+        int index = steps;
+        for (int node = lastEndNode; node != startNode; node = parent[node]) {
+            cells[--index] = cellOf.get(node);
+            directions[index] = directionBetween(parent[node], node);
+        }
+        return BFSAlgorithm.formatPath(cellOf.get(startNode), cells, directions, steps, columns);
+    }
+
+    /**
+     * Find the direction of the edge from one node to another.
+     * @param from The node the edge starts at
+     * @param to   The node the edge ends at
+     * @return The direction of the first such edge
+     */
+    private byte directionBetween(int from, int to) {
+        int last = offsets.get(from + 1);
+        for (int edge = offsets.get(from); edge < last; edge++) {
+            int packed = edges.get(edge);
+            if (packed >>> 2 == to) {
+                return (byte) (packed & 3);
+            }
+        }
+        throw new IllegalStateException("No edge from node " + from + " to node " + to);
+    }
+
+    /**
+     * Get the number of moves on the path found by the last search.
+     * @return The number of moves, or -1 if no path was found
+     */
+    public int getSteps() {
+        if (lastEndNode < 0) {
+            return -1;
+        }
+        int steps = 0;
+        for (int node = lastEndNode; node != startNode; node = parent[node]) {
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * Find the node of a cell.
+     * @param row    The row of the cell
+     * @param column The column of the cell
+     * @return The node, or -1 if no slide can stop on the cell
+     */
+    public int nodeOf(int row, int column) {
+        int cell = row * columns + column;
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = cellOf.get(middle);
+            if (value < cell) {
+                low = middle + 1;
+            } else if (value > cell) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the number of nodes in the graph.
+     * @return The number of stop cells, including the starting and ending positions
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Get the number of edges in the graph.
+     * @return The number of slides that move at least one cell
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Get the number of rows in the maze.
+     * @return The number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the number of columns in the maze.
+     * @return The number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the number of nodes expanded during the last search.
+     * @return The number of expanded nodes
+     */
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /**
+     * Get the time spent searching during the last search.
+     * @return The search time in nanoseconds
+     */
+    public long getSearchTimeNanos() {
+        return searchTimeNanos;
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.Arrays;
+
+/**
+ * This class holds the ending positions of a puzzle, which may have more than one 'F'. The targets are kept as a
+ * sorted array of cell indexes to list them, and as bits laid out like a MazeGrid, so checking a cell is one bit test
+ * and the nearest target along a slide is found 64 cells at a time by a SlideScanner over the bits.
+ * The bits cost one bit per cell, and the scanner another once it is first needed. A set of one target has neither,
+ * its cell is compared directly, so a search for a single ending position goes through the same code for free.
+ */
+public class TargetSet {
+    private final int rows;
+    private final int columns;
+    private final int[] cells;
+    // The first target, compared directly when it is the only one
+    private final int firstRow;
+    private final int firstColumn;
+    // A set bit is a target, the border bits are set too and are never looked at as targets; null for a single target
+    private final MazeGrid bits;
+    // Built on first use, two threads racing to build it both get a complete scanner since its fields are final
+    private SlideScanner scanner;
+
+    /**
+     * Create a target set.
+     * @param rows    The number of rows in the maze
+     * @param columns The number of columns in the maze
+     * @param cells   The row-major indexes of the targets in ascending order, without repeats
+     */
+    TargetSet(int rows, int columns, int[] cells) {
+        if (cells.length == 0) {
+            throw new IllegalArgumentException("A target set needs at least one target");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.cells = cells;
+        this.firstRow = cells[0] / columns;
+        this.firstColumn = cells[0] % columns;
+        if (cells.length == 1) {
+            this.bits = null;
+            return;
+        }
+        this.bits = new MazeGrid(rows, columns);
+        for (int cell : cells) {
+            bits.setWall(cell / columns, cell % columns, true);
+        }
+    }
+
+    /**
+     * Create a set of one target.
+     * @param rows    The number of rows in the maze
+     * @param columns The number of columns in the maze
+     * @param row     The row of the target
+     * @param column  The column of the target
+     * @return The target set
+     */
+    static TargetSet single(int rows, int columns, int row, int column) {
+        return new TargetSet(rows, columns, new int[]{row * columns + column});
+    }
+
+    /**
+     * Create a target set from positions.
+     * @param rows      The number of rows in the maze
+     * @param columns   The number of columns in the maze
+     * @param positions The targets as {row, column}, in any order
+     * @return The target set
+     */
+    public static TargetSet of(int rows, int columns, int[]... positions) {
+        int[] cells = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i][0] < 0 || positions[i][0] >= rows || positions[i][1] < 0 || positions[i][1] >= columns) {
+                throw new IllegalArgumentException("Target (" + (positions[i][1] + 1) + ", " + (positions[i][0] + 1) + ") is outside the maze");
+            }
+            cells[i] = positions[i][0] * columns + positions[i][1];
+        }
+        return new TargetSet(rows, columns, Arrays.stream(cells).sorted().distinct().toArray());
+    }
+
+    /**
+     * Get the number of targets.
+     * @return The number of targets
+     */
+    public int size() {
+        return cells.length;
+    }
+
+    /**
+     * Get a target.
+     * @param index The index of the target, in row-major order
+     * @return The target as {row, column}
+     */
+    public int[] getPosition(int index) {
+        return new int[]{cells[index] / columns, cells[index] % columns};
+    }
+
+    /**
+     * Get the cell of a target.
+     * @param index The index of the target, in row-major order
+     * @return The row-major index of the cell
+     */
+    int getCell(int index) {
+        return cells[index];
+    }
+
+    /**
+     * Check if a cell inside the maze is a target.
+     * @param row    The row of the cell
+     * @param column The column of the cell
+     * @return true if the cell is a target, otherwise false
+     */
+    public boolean contains(int row, int column) {
+        if (bits == null) {
+            return row == firstRow && column == firstColumn;
+        }
+        return bits.isWall(row, column);
+    }
+
+    /**
+     * Find the nearest target in a direction from a cell.
+     * @param direction The direction to look in, one of the SlideTable direction indexes
+     * @param row       The row to look from
+     * @param column    The column to look from
+     * @return The row of the target for up and down, the column for left and right,
+     *         or -1 or the size of the maze if there is none
+     */
+    int nearest(int direction, int row, int column) {
+        if (bits == null) {
+            return switch (direction) {
+                case SlideTable.UP -> firstColumn == column && firstRow < row ? firstRow : -1;
+                case SlideTable.DOWN -> firstColumn == column && firstRow > row ? firstRow : rows;
+                case SlideTable.LEFT -> firstRow == row && firstColumn < column ? firstColumn : -1;
+                default -> firstRow == row && firstColumn > column ? firstColumn : columns;
+            };
+        }
+        if (scanner == null) {
+            scanner = new SlideScanner(bits);
+        }
+        return scanner.nextWall(direction, row, column);
+    }
+
+    /**
+     * Get the number of rows of the maze the targets belong to.
+     * @return The number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the number of columns of the maze the targets belong to.
+     * @return The number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+}